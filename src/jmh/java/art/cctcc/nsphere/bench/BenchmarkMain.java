@@ -0,0 +1,40 @@
+/*
+ * Copyright 2022 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.nsphere.bench;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JMH entry point writing JSON results to jmh-result.json unless a result
+ * format or file is given on the command line, e.g.
+ * {@code java -jar target/benchmarks.jar Mutation -rff mutation.json}.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+public class BenchmarkMain {
+
+  public static void main(String... args) throws IOException {
+
+    var argv = new ArrayList<>(List.of(args));
+    if (!argv.contains("-rf"))
+      argv.addAll(List.of("-rf", "json"));
+    if (!argv.contains("-rff"))
+      argv.addAll(List.of("-rff", "jmh-result.json"));
+    org.openjdk.jmh.Main.main(argv.toArray(String[]::new));
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2022 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.nsphere.bench;
+
+import art.cctcc.nsphere.RandomNumberGenerator;
+import art.cctcc.nsphere.enums.RNG;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RandomBenchmark {
+
+  @Param({"Xoshiro256PlusPlus", "L64X128MixRandom", "MersenneTwister", "Ziggurat"})
+  public RNG rng;
+
+  private RandomNumberGenerator random;
+  private final double[] block = new double[1000];
+
+  @Setup
+  public void setup() {
+
+    random = RandomNumberGenerator.of(1, rng);
+  }
+
+  @Benchmark
+  public double gaussian() {
+
+    return random.rngGaussian(1);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(1000)
+  public double[] gaussians() {
+
+    random.gaussians(block, 0, block.length);
+    return block;
+  }
+
+  @Benchmark
+  public int integer() {
+
+    return random.rngInt(100);
+  }
+
+  @Benchmark
+  public double uniform() {
+
+    return random.rngDouble();
+  }
+}
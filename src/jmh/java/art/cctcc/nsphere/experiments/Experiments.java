@@ -0,0 +1,54 @@
+/*
+ * Copyright 2022 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.nsphere.experiments;
+
+import art.cctcc.nsphere.RandomNumberGenerator;
+import art.cctcc.nsphere.enums.ESMode;
+import art.cctcc.nsphere.enums.ESType;
+import art.cctcc.nsphere.enums.RNG;
+
+/**
+ * Experiments with the default parameters of ESMain, initialized and ready
+ * for single generation steps.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+class Experiments {
+
+  static AbsExperiment create(ESType type, int n, ESMode mode, int mu, int lambda) {
+
+    return create(type, n, mode, mu, lambda, false);
+  }
+
+  static AbsExperiment create(ESType type, int n, ESMode mode, int mu, int lambda, boolean simd) {
+
+    var random = RandomNumberGenerator.of(1, RNG.Xoshiro256PlusPlus);
+    AbsExperiment e = switch (type) {
+      case FSS ->
+        new ExperimentFSS(n, mode, mu, lambda, 0.1, Integer.MAX_VALUE, random);
+      case UNSS ->
+        new ExperimentUNSS(n, mode, mu, lambda, 0.1, 1e-4, Integer.MAX_VALUE, random);
+      default ->
+        new ExperimentOneFive(n, mode, mu, lambda, 0.1, 100, Integer.MAX_VALUE, random);
+    };
+    e.simd = simd;
+    e.init();
+    e.evaluateParents();
+    e.reproduce();
+    e.select();
+    return e;
+  }
+}
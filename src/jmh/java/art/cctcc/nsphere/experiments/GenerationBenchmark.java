@@ -0,0 +1,67 @@
+/*
+ * Copyright 2022 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.nsphere.experiments;
+
+import art.cctcc.nsphere.enums.ESMode;
+import art.cctcc.nsphere.enums.ESType;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * One generation of the ES loop: mutation and evaluation of the lambda
+ * offspring, then selection.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GenerationBenchmark {
+
+  @Param({"UNSS"})
+  public ESType type;
+
+  @Param({"Plus", "Comma"})
+  public ESMode mode;
+
+  // mu:lambda
+  @Param({"1:1", "15:100", "100:1000"})
+  public String selection;
+
+  @Param({"100"})
+  public int n;
+
+  private AbsExperiment experiment;
+
+  @Setup(Level.Iteration)
+  public void setup() {
+
+    var mu_lambda = selection.split(":");
+    experiment = Experiments.create(type, n, mode,
+            Integer.parseInt(mu_lambda[0]), Integer.parseInt(mu_lambda[1]));
+  }
+
+  @Benchmark
+  public boolean generation() {
+
+    experiment.reproduce();
+    experiment.select();
+    return experiment.goal();
+  }
+}
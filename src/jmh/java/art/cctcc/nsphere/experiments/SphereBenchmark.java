@@ -0,0 +1,54 @@
+/*
+ * Copyright 2022 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.nsphere.experiments;
+
+import art.cctcc.nsphere.enums.ESMode;
+import art.cctcc.nsphere.enums.ESType;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class SphereBenchmark {
+
+  @Param({"10", "100", "1000", "10000"})
+  public int n;
+
+  @Param({"false", "true"})
+  public boolean simd;
+
+  private AbsExperiment experiment;
+
+  @Setup
+  public void setup() {
+
+    experiment = Experiments.create(ESType.FSS, n, ESMode.Plus, 1, 1, simd);
+  }
+
+  @Benchmark
+  public double calcEval() {
+
+    return experiment.calcEval(experiment.offspring, 0);
+  }
+}
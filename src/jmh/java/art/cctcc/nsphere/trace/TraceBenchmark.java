@@ -0,0 +1,75 @@
+/*
+ * Copyright 2022 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.nsphere.trace;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Cost of writing one trace row of mu + lambda evaluations.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TraceBenchmark {
+
+  @Param({"csv", "bin"})
+  public String format;
+
+  @Param({"15:100"})
+  public String selection;
+
+  private Path path;
+  private TraceWriter writer;
+  private double[] parents;
+  private double[] offspring;
+  private int iteration;
+
+  @Setup(Level.Iteration)
+  public void setup() throws IOException {
+
+    var mu_lambda = selection.split(":");
+    var random = new Random(1);
+    parents = random.doubles(Integer.parseInt(mu_lambda[0]), 0, 100).toArray();
+    offspring = random.doubles(Integer.parseInt(mu_lambda[1]), 0, 100).toArray();
+    path = Files.createTempFile("trace", "." + format);
+    writer = format.equals("bin")
+            ? new BinaryTraceWriter(path, parents.length, offspring.length, 10000)
+            : new CsvTraceWriter(path, parents.length, offspring.length, 10000);
+  }
+
+  @TearDown(Level.Iteration)
+  public void tearDown() throws IOException {
+
+    writer.close();
+    Files.deleteIfExists(path);
+  }
+
+  @Benchmark
+  public void write() throws IOException {
+
+    writer.write(iteration++, 1.0, parents, offspring);
+  }
+}
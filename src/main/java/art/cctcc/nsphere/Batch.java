@@ -0,0 +1,383 @@
+/*
+ * Copyright 2022 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.nsphere;
+
+import art.cctcc.nsphere.experiments.Checkpoint;
+import art.cctcc.nsphere.experiments.ExperimentCMA;
+import art.cctcc.nsphere.experiments.ExperimentFSS;
+import art.cctcc.nsphere.experiments.ExperimentOneFive;
+import art.cctcc.nsphere.experiments.ExperimentSparse;
+import art.cctcc.nsphere.experiments.ExperimentUNSS;
+import art.cctcc.nsphere.experiments.RestartController;
+import art.cctcc.nsphere.metrics.ExperimentMetrics;
+import art.cctcc.nsphere.stats.Aggregate;
+import art.cctcc.nsphere.stats.EvalLog;
+import art.cctcc.nsphere.stats.RunCurve;
+import static art.cctcc.nsphere.Tools.time_elapsed;
+import art.cctcc.nsphere.enums.ESType;
+import art.cctcc.nsphere.enums.ObjectiveType;
+import art.cctcc.nsphere.enums.RestartStrategy;
+import art.cctcc.nsphere.enums.Storage;
+import art.cctcc.nsphere.enums.Termination;
+import art.cctcc.nsphere.enums.TraceFormat;
+import art.cctcc.nsphere.trace.BinaryTraceWriter;
+import art.cctcc.nsphere.trace.CsvTraceWriter;
+import art.cctcc.nsphere.trace.TracePolicy;
+import art.cctcc.nsphere.trace.TraceWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+
+/**
+ * One configuration of {@link Parameters}: its runs are submitted to an
+ * executor on construction, then reported and plotted in submission order
+ * by {@link #report()}. Every run is merged into the {@link Aggregate} of
+ * its sigma as soon as it ends. Results go to a folder under es_data named
+ * after the configuration, where summary.csv, written last, marks it done.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+public class Batch {
+
+  public final Parameters params;
+  public final Path path;
+  // summary.csv was found in path, so nothing was submitted
+  public final boolean done;
+
+  private final Instant start = Instant.now();
+  private final List<Future<String>> jobs = new ArrayList<>();
+  private final PlotSeries[] series;
+  private final Map<Double, Aggregate> aggregates = new LinkedHashMap<>();
+  // results of every run, set when it ends; the experiments themselves are
+  // created by their job and dropped after it, so only running ones are live
+  private final int[] iterations;
+  private final long[] evaluations;
+  private final Termination[] stopped;
+  // wall time of every run
+  private final long[] millis;
+
+  /**
+   * Submits the runs of params to executor, unless skip_done and the
+   * configuration already has a summary.
+   */
+  public Batch(Parameters params, ExecutorService executor, boolean skip_done) throws IOException {
+
+    this.params = params;
+    this.path = Path.of(System.getProperty("user.dir"), "es_data", folder(params));
+    this.done = skip_done && Files.exists(summary(path));
+    this.series = new PlotSeries[params.run * params.init_sigmas.size()];
+    this.iterations = new int[series.length];
+    this.evaluations = new long[series.length];
+    this.stopped = new Termination[series.length];
+    this.millis = new long[series.length];
+    if (done) {
+      System.out.println("Already done, skipped: " + path);
+      return;
+    }
+
+    final var seed = params.seed;
+
+    final var n = params.n;
+    final var run = params.run;
+    final var init_sigmas = params.init_sigmas;
+    final var upper_limit = params.upper_limit;
+
+    final var type = params.type;
+    final var mode = params.mode;
+    final var mu = params.mu;
+    final var lambda = params.lambda;
+
+    //UNSS
+    final var tau = params.tau;
+    final var tau_prime = params.tau_prime;
+    final var epsilon0 = params.epsilon0;
+    final var fast_exp = params.fast_exp;
+
+    //OneFive
+    final var g = params.g;
+    final var a = params.a;
+
+    //Sparse
+    final var k = params.k;
+    final var reeval = params.reeval;
+
+    RestartController.Factory getExperiment = (m, l, sigma, random) -> {
+      var e = switch (type) {
+        case FSS ->
+          new ExperimentFSS(n, mode, m, l, sigma, upper_limit, random);
+        case UNSS -> {
+          var unss = new ExperimentUNSS(n, mode, m, l, sigma, tau, tau_prime, epsilon0, upper_limit, random);
+          unss.fast_exp = fast_exp;
+          yield unss;
+        }
+        case Sparse ->
+          new ExperimentSparse(n, mode, m, l, sigma, k, reeval, upper_limit, random);
+        case CMA, SepCMA ->
+          new ExperimentCMA(n, mode, m, l, sigma, type == ESType.SepCMA, upper_limit, random);
+        default ->
+          new ExperimentOneFive(n, mode, m, l, sigma, g, a, upper_limit, random);
+      };
+      e.parallel = params.parallel;
+      e.simd = params.simd;
+      e.storage = params.storage;
+      e.function = params.f;
+      e.target = params.target;
+      e.termination = params.getTermination();
+      return e;
+    };
+
+    var format = params.format;
+    var restarts = params.restart != RestartStrategy.None;
+    var columns = new TracePolicy(params.trace, params.trace_k).members() && !restarts;
+    BiFunction<Path, Long, TraceWriter> getTrace = (file, resume_at) -> {
+      try {
+        return format == TraceFormat.BIN
+                ? new BinaryTraceWriter(file, columns ? mu : 0, columns ? lambda : 0, restarts, params.flush, resume_at)
+                : new CsvTraceWriter(file, columns ? mu : 0, columns ? lambda : 0, restarts, params.flush, resume_at);
+      } catch (IOException ex) {
+        throw new UncheckedIOException(ex);
+      }
+    };
+
+    System.out.println("*".repeat(80));
+    System.out.println(params);
+
+    Files.createDirectories(path);
+
+    // checkpoints capture a single run's state only
+    var checkpoints = params.checkpoint > 0 || params.resume;
+    if (checkpoints && restarts) {
+      System.out.println("Checkpoints are not supported with restarts, disabled.");
+      checkpoints = false;
+    }
+
+    // Every run owns its RNG stream, derived from the master seed by run
+    // index, so the results do not depend on how the runs are scheduled.
+    var streams = RandomNumberGenerator.streams(seed, params.rng, run * init_sigmas.size());
+    var grid = RunCurve.grid(upper_limit);
+    for (var sigma : init_sigmas)
+      aggregates.put(sigma, new Aggregate(grid));
+    for (int i = 0, index = 0; i < run; i++) {
+      for (var sigma : init_sigmas) {
+        var name = String.format("run_%d(sigma=%.2f)", i + 1, sigma);
+        var random = streams[index];
+        var trace = path.resolve(name + "." + format.extension);
+        var checkpoint = checkpoints && random.saveable() ? path.resolve(name + ".ckpt") : null;
+        if (checkpoints && checkpoint == null)
+          System.out.println("Checkpoints are not supported with " + params.rng + ", disabled.");
+        var resume = checkpoint != null && params.resume && Files.exists(checkpoint);
+        if (resume)
+          System.out.println("Resuming from " + checkpoint);
+        var histogram = path.resolve(name + ".hist.csv");
+        var aggregate = aggregates.get(sigma);
+        final var slot = index++;
+        jobs.add(executor.submit(() -> {
+          var t0 = System.nanoTime();
+          var e = new RestartController(params.restart, params.max_restarts, params.budget,
+                  mu, lambda, sigma, random, getExperiment);
+          var offset = resume ? Checkpoint.traceSize(checkpoint) : 0L;
+          if (checkpoint != null)
+            e.experiment.checkpoint = new Checkpoint(checkpoint, params.checkpoint, resume);
+          if (params.metrics || params.jfr > 0)
+            e.metrics = new ExperimentMetrics(name, params.jfr);
+          e.histogram = params.histogram;
+          if (params.evallog)
+            e.eval_log = new EvalLog(path.resolve(name + ".evals"),
+                    resume ? Checkpoint.evalLogSize(checkpoint) : 0L);
+          series[slot] = new PlotSeries();
+          var curve = new RunCurve(grid);
+          var elapsed = e.run(series[slot].record(curve.record(getTrace.apply(trace, offset))),
+                  () -> new TracePolicy(params.trace, params.trace_k));
+          // rows before the checkpoint were recorded by the interrupted run
+          if (offset > 0) {
+            series[slot] = new PlotSeries();
+            curve = new RunCurve(grid);
+            Plot.replay(trace, Integer.MAX_VALUE,
+                    series[slot].record(curve.record(TraceWriter.discard())));
+          }
+          aggregate.add(curve, e.stopped() == Termination.Goal, e.evaluations);
+          if (params.histogram)
+            e.statistics.writeHistogram(histogram);
+          iterations[slot] = e.iterations;
+          evaluations[slot] = e.evaluations;
+          stopped[slot] = e.stopped();
+          millis[slot] = (System.nanoTime() - t0) / 1000000;
+          return String.format(
+                  """
+                  \n%s
+                  %s
+                  Iterations = %s, eval sizes = %s, stopped by %s%s
+                  Evals: %s%s
+                  """, e.getTitle(), elapsed,
+                  e.iterations, e.evaluations, e.stopped().description,
+                  restarts ? ", restarts = " + e.restarts : "",
+                  e.statistics, e.metrics != null ? "\n" + e.metrics : "");
+        }));
+      }
+    }
+  }
+
+  /**
+   * Folder of the results of params under es_data.
+   */
+  public static String folder(Parameters params) {
+
+    // sphere runs keep their folder names from before objectives were selectable
+    return String.format("n%d-%s%s%s-%s_%d", params.n,
+            params.f == ObjectiveType.Sphere ? "" : params.f + "-",
+            params.storage == Storage.Double ? "" : params.storage + "-",
+            params.type.description, params.mode.getMode(params.mu, params.lambda), params.seed);
+  }
+
+  public static Path summary(Path path) {
+
+    return path.resolve("summary.csv");
+  }
+
+  /**
+   * Waits for the runs, printing their reports, then writes the summary and
+   * the plots.
+   */
+  public void report() throws IOException, InterruptedException, ExecutionException {
+
+    if (done)
+      return;
+
+    final var n = params.n;
+    final var run = params.run;
+    final var init_sigmas = params.init_sigmas;
+    final var type = params.type;
+    final var mode = params.mode;
+    final var mu = params.mu;
+    final var lambda = params.lambda;
+
+    // Reports are printed in submission order, whatever order runs finish in.
+    var iterations = new ArrayList<Map<Double, Integer>>();
+    for (int i = 0, job = 0; i < run; i++) {
+      System.out.printf("""
+                        %s
+                        Run#%2d
+                        """, "*".repeat(80), i + 1);
+      var result = new HashMap<Double, Integer>();
+      for (var sigma : init_sigmas) {
+        System.out.print(jobs.get(job).get());
+        result.put(sigma, this.iterations[job++]);
+      }
+      iterations.add(result);
+    }
+    System.out.println("*".repeat(80));
+    System.out.println(time_elapsed(start));
+
+    var limits = iterations.get(0).entrySet().stream()
+            .map(e -> Map.entry(e.getKey(), new int[]{e.getValue(), 0}))
+            .collect(Collectors.toMap(Entry::getKey, Entry::getValue));
+    for (int i = 1; i < run; i++) {
+      for (var e : iterations.get(i).entrySet()) {
+        var key = e.getKey();
+        if (e.getValue() > limits.get(key)[0]) {
+          limits.get(key)[1] = limits.get(key)[0];
+          limits.get(key)[0] = e.getValue();
+        } else if (e.getValue() > limits.get(key)[1])
+          limits.get(key)[1] = e.getValue();
+      }
+    }
+
+    // one plot per sigma, rendered in parallel from the series recorded
+    // during the runs
+    System.out.println();
+    var plots = init_sigmas.parallelStream().map(sigma -> {
+      var title = String.format("%d-Dimensional %s: %s, %s, sigma=%.2f",
+              n, params.f.description, mode.getMode(mu, lambda), type.description, sigma);
+      var plot = new Plot(title);
+      for (int i = 0; i < run; i++) {
+        var iteration = iterations.get(i).get(sigma);
+        var limit = limits.get(sigma)[1] == params.upper_limit ? 100 : limits.get(sigma)[1] * 3 / 2;
+        var data = series[i * init_sigmas.size() + init_sigmas.indexOf(sigma)].data(limit + 1);
+        plot.add(String.format("Run#%2d%s", i + 1, iteration > limit
+                ? (iteration == params.upper_limit ? "*" : " (" + iteration + ")") : ""), data);
+        plot.addRestarts(String.format("Run#%2d restarts", i + 1), data);
+      }
+      plot.write(path.resolve(String.format("plot(sigma=%.2f).png", sigma)));
+      return plot;
+    }).toList();
+    var aggregate = aggregate();
+    writeSummary();
+    if (!params.batch) {
+      plots.forEach(Plot::display);
+      aggregate.display();
+    }
+  }
+
+  /**
+   * Writes the aggregates of all sigmas to aggregate.csv and ecdf.csv, and
+   * plots their median and quartiles.
+   */
+  private Plot aggregate() throws IOException {
+
+    try (var curves = Files.newBufferedWriter(path.resolve("aggregate.csv"));
+            var ecdf = Files.newBufferedWriter(path.resolve("ecdf.csv"))) {
+      curves.write("Sigma,Iteration,Runs,Mean,SD,Min,Q10,Q25,Median,Q75,Q90,Max\n");
+      ecdf.write("Sigma,Evaluations,Solved\n");
+      for (var e : aggregates.entrySet()) {
+        e.getValue().writeCurves(curves, e.getKey());
+        e.getValue().writeECDF(ecdf, e.getKey());
+      }
+    }
+    var plot = new Plot(String.format("%d-Dimensional %s: %s, %s, %d runs, median and quartiles",
+            params.n, params.f.description, params.mode.getMode(params.mu, params.lambda),
+            params.type.description, params.run)).logarithmic();
+    var color = 0;
+    for (var e : aggregates.entrySet()) {
+      var aggregate = e.getValue();
+      plot.add(String.format("sigma=%.2f", e.getKey()), aggregate.grid, aggregate.quantile(0.5), color, false);
+      plot.add(String.format("sigma=%.2f Q25", e.getKey()), aggregate.grid, aggregate.quantile(0.25), color, true);
+      plot.add(String.format("sigma=%.2f Q75", e.getKey()), aggregate.grid, aggregate.quantile(0.75), color++, true);
+    }
+    plot.write(path.resolve("aggregate.png"));
+    return plot;
+  }
+
+  private void writeSummary() throws IOException {
+
+    // written aside and moved in place, as the summary marks the folder done
+    var summary = summary(path);
+    var tmp = summary.resolveSibling(summary.getFileName() + ".tmp");
+    var index = 0;
+    try (var out = Files.newBufferedWriter(tmp)) {
+      out.write("Run,Sigma,Iterations,Evaluations,Stopped,Millis\n");
+      for (int i = 0; i < params.run; i++)
+        for (var sigma : params.init_sigmas) {
+          out.write(String.format("%d,%s,%d,%d,%s,%d%n", i + 1, sigma,
+                  iterations[index], evaluations[index], stopped[index], millis[index++]));
+        }
+    }
+    Files.move(tmp, summary, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2022 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.nsphere;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Population with single-precision chromosomes in {@code floats}, half the
+ * memory and bandwidth of doubles for large n. Step sizes and evaluations
+ * stay double.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+public class FloatPopulation extends Population {
+
+  public final float[] floats;
+
+  public FloatPopulation(int size, int n, int m) {
+
+    super(size, n, m, null);
+    this.floats = new float[size * n];
+  }
+
+  @Override
+  public double get(int i, int j) {
+
+    return floats[i * n + j];
+  }
+
+  @Override
+  public void fill(double x) {
+
+    Arrays.fill(floats, (float) x);
+  }
+
+  @Override
+  public void copy(int i, Population from, int j) {
+
+    System.arraycopy(((FloatPopulation) from).floats, j * n, floats, i * n, n);
+    System.arraycopy(from.sigmas, j * m, sigmas, i * m, m);
+    evals[i] = from.evals[j];
+  }
+
+  @Override
+  public void save(DataOutput out) throws IOException {
+
+    for (var v : floats)
+      out.writeFloat(v);
+    saveStrategy(out);
+  }
+
+  @Override
+  public void restore(DataInput in) throws IOException {
+
+    for (int i = 0; i < floats.length; i++)
+      floats[i] = in.readFloat();
+    restoreStrategy(in);
+  }
+}
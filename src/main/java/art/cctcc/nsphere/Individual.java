@@ -26,7 +26,8 @@ public class Individual {
 
   public final double[] chromosome;
   public final double[] sigmas;
-  private double eval = -1;
+  // NaN until set
+  private double eval = Double.NaN;
 
   public Individual(double[] chromosome, double... sigmas) {
 
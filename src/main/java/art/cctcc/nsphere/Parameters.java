@@ -15,12 +15,23 @@ package art.cctcc.nsphere;
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-import static art.cctcc.nsphere.RandomNumberGenerator.initRandom;
 import static art.cctcc.nsphere.Tools.getEpochMilli;
 import art.cctcc.nsphere.enums.ESMode;
 import art.cctcc.nsphere.enums.ESType;
+import art.cctcc.nsphere.enums.ObjectiveType;
 import art.cctcc.nsphere.enums.RNG;
+import art.cctcc.nsphere.enums.RestartStrategy;
+import art.cctcc.nsphere.enums.Storage;
+import art.cctcc.nsphere.enums.TraceFormat;
+import art.cctcc.nsphere.enums.TraceLevel;
+import art.cctcc.nsphere.experiments.TerminationCriteria;
+import art.cctcc.nsphere.kernels.Kernels;
+import art.cctcc.nsphere.objectives.Objective;
+import art.cctcc.nsphere.objectives.Separable;
+import art.cctcc.nsphere.trace.TracePolicy;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 
 /**
@@ -33,8 +44,40 @@ public class Parameters {
   public RNG rng = RNG.Xoshiro256PlusPlus;
   public int upper_limit = 10000000;
 
+  public ObjectiveType f = ObjectiveType.Sphere;
+  public double target = 0.0005;
+
+  //termination, 0 = disabled
+  public int stagnation = 0;
+  public double sigma_min = 0;
+  public double tol_fun = 0;
+  public double tol_x = 0;
+  public double time = 0;
+  public long max_evals = 0;
+
+  //restarts
+  public RestartStrategy restart = RestartStrategy.None;
+  public int max_restarts = 9;
+  public long budget = 0;
+
   public int n = 10;
   public int run = 10;
+  public int threads = Runtime.getRuntime().availableProcessors();
+  public boolean parallel = false;
+  public boolean simd = false;
+  public Storage storage = Storage.Double;
+  public int flush = 10000;
+  public TraceFormat format = TraceFormat.CSV;
+  public TraceLevel trace = TraceLevel.Log;
+  public int trace_k = 1000;
+  public int checkpoint = 0;
+  public boolean resume = false;
+  public boolean metrics = false;
+  public int jfr = 0;
+  public boolean evallog = false;
+  public boolean histogram = false;
+  public boolean batch = false;
+  public Path sweep = null;
 
   public ESType type = ESType.UNSS;
   public ESMode mode = ESMode.Plus;
@@ -45,24 +88,63 @@ public class Parameters {
   public double tau = 1e-7 / Math.sqrt(2 * Math.sqrt(n));
   public double tau_prime = 1 / Math.sqrt(2 * n);
   public double epsilon0 = 1e-4;
+  public boolean fast_exp = false;
 
   //OneFive
   public int g = 100;
   public double a = 0.817;
 
+  //Sparse
+  public int k = 1;
+  public int reeval = 1000;
+
   public List<Double> init_sigmas = new ArrayList<>();
 
   public Parameters(String... args) {
 
+    // keys given explicitly, so defaults derived from others do not override them
+    var given = new HashSet<String>();
     for (int i = 0; i < args.length; i++) {
       var arg = args[i].split("=");
+      if (arg.length > 1)
+        given.add(arg[0].toLowerCase());
       switch (arg[0].toLowerCase()) {
         case "seed" -> seed = Long.parseLong(arg[1]);
         case "rng" -> rng = RNG.valueOf(arg[1]);
         case "limit" -> upper_limit = Integer.parseInt(arg[1]);
 
+        case "f" -> f = ObjectiveType.of(arg[1]);
+        case "target" -> target = Double.parseDouble(arg[1]);
+
+        case "stagnation" -> stagnation = Integer.parseInt(arg[1]);
+        case "sigma_min" -> sigma_min = Double.parseDouble(arg[1]);
+        case "tolfun" -> tol_fun = Double.parseDouble(arg[1]);
+        case "tolx" -> tol_x = Double.parseDouble(arg[1]);
+        case "time" -> time = Double.parseDouble(arg[1]);
+        case "max_evals" -> max_evals = Long.parseLong(arg[1]);
+
+        case "restart" -> restart = RestartStrategy.valueOf(arg[1]);
+        case "restarts" -> max_restarts = Integer.parseInt(arg[1]);
+        case "budget" -> budget = Long.parseLong(arg[1]);
+
         case "n" -> n = Integer.parseInt(arg[1]);
         case "run" -> run = Integer.parseInt(arg[1]);
+        case "threads" -> threads = Integer.parseInt(arg[1]);
+        case "parallel" -> parallel = Boolean.parseBoolean(arg[1]);
+        case "simd" -> simd = Boolean.parseBoolean(arg[1]);
+        case "storage" -> storage = Storage.valueOf(arg[1]);
+        case "flush" -> flush = Integer.parseInt(arg[1]);
+        case "format" -> format = TraceFormat.valueOf(arg[1].toUpperCase());
+        case "trace" -> trace = TraceLevel.valueOf(arg[1]);
+        case "trace_k" -> trace_k = Integer.parseInt(arg[1]);
+        case "checkpoint" -> checkpoint = Integer.parseInt(arg[1]);
+        case "resume" -> resume = Boolean.parseBoolean(arg[1]);
+        case "metrics" -> metrics = Boolean.parseBoolean(arg[1]);
+        case "jfr" -> jfr = Integer.parseInt(arg[1]);
+        case "evallog" -> evallog = Boolean.parseBoolean(arg[1]);
+        case "histogram" -> histogram = Boolean.parseBoolean(arg[1]);
+        case "batch" -> batch = Boolean.parseBoolean(arg[1]);
+        case "sweep" -> sweep = Path.of(arg[1]);
 
         case "type" -> type = ESType.valueOf(arg[1]);
         case "mode" -> mode = ESMode.valueOf(arg[1]);
@@ -72,27 +154,55 @@ public class Parameters {
         case "tau" -> tau = Double.parseDouble(arg[1]);
         case "taup" -> tau_prime = Double.parseDouble(arg[1]);
         case "ep0" -> epsilon0 = Double.parseDouble(arg[1]);
+        case "fastexp" -> fast_exp = Boolean.parseBoolean(arg[1]);
 
         case "g" -> g = Integer.parseInt(arg[1]);
         case "a" -> a = Double.parseDouble(arg[1]);
+
+        case "k" -> k = Integer.parseInt(arg[1]);
+        case "reeval" -> reeval = Integer.parseInt(arg[1]);
         default -> init_sigmas.add(Double.valueOf(arg[0]));
       }
     }
 
-    initRandom(seed, rng);
+    // default population of CMA-ES, for whichever of mu and lambda was not given
+    if (type == ESType.CMA || type == ESType.SepCMA) {
+      if (!given.contains("lambda"))
+        lambda = 4 + (int) (3 * Math.log(n));
+      if (!given.contains("mu"))
+        mu = Math.max(1, lambda / 2);
+    }
+
+    // Sparse-ES keeps offspring as their k changes unless storage is given,
+    // where that is cheaper than copying the parent: each change looks up
+    // the earlier ones, O(k^2) against O(n)
+    if (type == ESType.Sparse && !given.contains("storage") && (long) k * k <= n
+            && Objective.of(f, n, Kernels.of(false)) instanceof Separable)
+      storage = Storage.Sparse;
 
     if (init_sigmas.isEmpty())
       init_sigmas = List.of(0.01, 0.1, 1.0);
   }
 
+  public TerminationCriteria getTermination() {
+
+    return new TerminationCriteria(stagnation, sigma_min, tol_fun, tol_x, time, max_evals);
+  }
+
   public String toString() {
 
     return String.format("""
-            %d-dimensional Sphere Model: %s, %s
-            init sigmas = %s
-            RNG=%s, Seed=%d""",
-            n, mode.getMode(mu, lambda), type.description,
-            init_sigmas,
-            rng, seed);
+            %d-dimensional %s: %s, %s
+            init sigmas = %s, target = %s
+            RNG=%s, Seed=%d, Threads=%d, Storage=%s
+            Trace=%s, Format=%s, Eval log=%s, Histogram=%s
+            Termination=%s, Restarts=%s""",
+            n, f.description, mode.getMode(mu, lambda), type.description,
+            init_sigmas, target,
+            rng, seed, threads, storage,
+            new TracePolicy(trace, trace_k), format, evallog, histogram,
+            getTermination(),
+            restart == RestartStrategy.None ? restart
+            : String.format("%s(max=%d, budget=%d)", restart, max_restarts, budget));
   }
 }
@@ -15,6 +15,9 @@
  */
 package art.cctcc.nsphere;
 
+import art.cctcc.nsphere.enums.TraceFormat;
+import art.cctcc.nsphere.trace.BinaryTraceReader;
+import art.cctcc.nsphere.trace.TraceWriter;
 import com.opencsv.CSVReaderHeaderAwareBuilder;
 import com.opencsv.exceptions.CsvValidationException;
 import java.awt.GraphicsEnvironment;
@@ -23,7 +26,6 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.logging.Level;
@@ -32,7 +34,10 @@ import org.knowm.xchart.BitmapEncoder;
 import org.knowm.xchart.SwingWrapper;
 import org.knowm.xchart.XYChart;
 import org.knowm.xchart.XYChartBuilder;
+import org.knowm.xchart.XYSeries.XYSeriesRenderStyle;
 import org.knowm.xchart.style.markers.None;
+import org.knowm.xchart.style.lines.SeriesLines;
+import org.knowm.xchart.style.markers.SeriesMarkers;
 
 /**
  * TO-DO
@@ -56,12 +61,56 @@ public class Plot {
             .build();
   }
 
-  public void add(String series, List<Integer> xData, List<Double> yData) {
+  /**
+   * Log-log axes, for curves over many decades.
+   */
+  public Plot logarithmic() {
 
-    chart.addSeries(series, xData, yData).setMarker(new None());
+    chart.getStyler().setXAxisLogarithmic(true).setYAxisLogarithmic(true);
+    return this;
   }
 
-  public void show(Path path) {
+  /**
+   * Adds the positive points of a curve, dashed or solid, in the color-th
+   * series color.
+   */
+  public void add(String series, int[] xData, double[] yData, int color, boolean dashed) {
+
+    var x = new ArrayList<Double>();
+    var y = new ArrayList<Double>();
+    for (int i = 0; i < xData.length; i++)
+      if (xData[i] > 0 && yData[i] > 0) {
+        x.add((double) xData[i]);
+        y.add(yData[i]);
+      }
+    if (x.isEmpty())
+      return;
+    var colors = chart.getStyler().getSeriesColors();
+    var s = chart.addSeries(series, x, y);
+    s.setMarker(new None());
+    s.setLineColor(colors[color % colors.length]);
+    if (dashed)
+      s.setLineStyle(SeriesLines.DASH_DASH);
+  }
+
+  public void add(String series, PlotData data) {
+
+    chart.addSeries(series, data.xData(), data.yData()).setMarker(new None());
+  }
+
+  /**
+   * Marks the first row of every restart of a run.
+   */
+  public void addRestarts(String series, PlotData data) {
+
+    if (data.restartX().length == 0)
+      return;
+    chart.addSeries(series, data.restartX(), data.restartY())
+            .setXYSeriesRenderStyle(XYSeriesRenderStyle.Scatter)
+            .setMarker(SeriesMarkers.DIAMOND);
+  }
+
+  public void write(Path path) {
 
     System.out.println("Writing plot to " + path);
     try {
@@ -69,32 +118,89 @@ public class Plot {
     } catch (IOException ex) {
       Logger.getLogger(Plot.class.getName()).log(Level.SEVERE, null, ex);
     }
+  }
+
+  /**
+   * Opens the chart in a window, unless headless.
+   */
+  public void display() {
+
     if (!GraphicsEnvironment.isHeadless()) {
       new SwingWrapper(chart).setTitle(title).displayChart();
     }
   }
 
+  /**
+   * Reads a trace into a decimated series, up to iteration limit; the
+   * series of a run are normally recorded while it runs instead.
+   */
+  public static PlotSeries readTrace(Path path, int limit) {
+
+    var series = new PlotSeries();
+    replay(path, limit, series.record(TraceWriter.discard()));
+    return series;
+  }
+
+  /**
+   * Reads the iterations and averages of a CSV or binary trace, up to
+   * iteration limit, decimated as by {@link #readTrace}.
+   */
   public static PlotData readCSV(Path path, int limit) {
 
+    return readTrace(path, limit).data(limit);
+  }
+
+  /**
+   * Writes the iterations and averages of a trace, up to iteration limit,
+   * to sink.
+   */
+  public static void replay(Path path, int limit, TraceWriter sink) {
+
+    if (path.toString().endsWith("." + TraceFormat.BIN.extension))
+      replayBinary(path, limit, sink);
+    else
+      replayCSV(path, limit, sink);
+  }
+
+  private static void replayBinary(Path path, int limit, TraceWriter sink) {
+
+    System.out.println("Reading " + path);
+    var none = new double[0];
+    try ( var reader = new BinaryTraceReader(path)) {
+      int iteration;
+      for (long r = 0; r < reader.records && (iteration = reader.iteration(r)) <= limit; r++) {
+        sink.restart(reader.restart(r));
+        sink.write(iteration, reader.average(r), none, none);
+      }
+    } catch (IOException ex) {
+      Logger.getLogger(Plot.class.getName()).log(Level.SEVERE, null, ex);
+    }
+  }
+
+  private static void replayCSV(Path path, int limit, TraceWriter sink) {
+
     System.out.println("Reading " + path);
-    var xData = new ArrayList<Integer>();
-    var yData = new ArrayList<Double>();
+    var none = new double[0];
     try ( var reader = new FileReader(path.toFile());
              var rha = new CSVReaderHeaderAwareBuilder(reader).build()) {
       Map<String, String> row;
       int iteration;
       while (Objects.nonNull(row = rha.readMap())
               && (iteration = Integer.parseInt(row.get("Iteration"))) <= limit) {
-        xData.add(iteration);
-        yData.add(Double.valueOf(row.get("Average")));
+        // traces of runs without restarts have no Restart column
+        if (row.containsKey("Restart"))
+          sink.restart(Integer.parseInt(row.get("Restart")));
+        sink.write(iteration, Double.parseDouble(row.get("Average")), none, none);
       }
     } catch (IOException | CsvValidationException ex) {
       Logger.getLogger(Parameters.class.getName()).log(Level.SEVERE, null, ex);
     }
-    return new PlotData(xData, yData);
   }
 
-  record PlotData(List<Integer> xData, List<Double> yData) {
+  /**
+   * Points to plot, and the first point of every restart.
+   */
+  record PlotData(double[] xData, double[] yData, double[] restartX, double[] restartY) {
 
   }
 }
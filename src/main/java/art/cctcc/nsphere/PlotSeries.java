@@ -0,0 +1,207 @@
+/*
+ * Copyright 2022 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.nsphere;
+
+import art.cctcc.nsphere.Plot.PlotData;
+import art.cctcc.nsphere.trace.TraceWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Trace averages of a run decimated while they are written, for plotting.
+ * Rows are grouped into at most CAPACITY buckets of equal row count; each
+ * bucket keeps its first, minimum, maximum and last point, and whenever all
+ * buckets are full, neighbouring buckets are merged pairwise and the row
+ * count per bucket doubles. A series thus holds at most 4 * CAPACITY points
+ * however long the run, and still shows every spike of the full trace. The
+ * first HEAD rows are also kept as they are, for plots cut short, and so is
+ * the first row of every restart.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+public class PlotSeries {
+
+  public static final int CAPACITY = 1024;
+  public static final int HEAD = 4 * CAPACITY;
+
+  private final int[] head_x = new int[HEAD];
+  private final double[] head_y = new double[HEAD];
+  private int head;
+
+  // first, minimum, maximum and last point of each bucket
+  private final int[] first_x = new int[CAPACITY];
+  private final double[] first_y = new double[CAPACITY];
+  private final int[] min_x = new int[CAPACITY];
+  private final double[] min_y = new double[CAPACITY];
+  private final int[] max_x = new int[CAPACITY];
+  private final double[] max_y = new double[CAPACITY];
+  private final int[] last_x = new int[CAPACITY];
+  private final double[] last_y = new double[CAPACITY];
+
+  private int buckets;
+  // rows per bucket, and rows in the last bucket
+  private int width = 1;
+  private int fill;
+
+  private final List<Integer> restart_x = new ArrayList<>();
+  private final List<Double> restart_y = new ArrayList<>();
+  private int restart;
+  private boolean restarted;
+
+  public void add(int iteration, double average) {
+
+    if (restarted) {
+      restart_x.add(iteration);
+      restart_y.add(average);
+      restarted = false;
+    }
+    if (head < HEAD) {
+      head_x[head] = iteration;
+      head_y[head++] = average;
+    }
+    if (fill == 0) {
+      if (buckets == CAPACITY)
+        compact();
+      var b = buckets++;
+      first_x[b] = min_x[b] = max_x[b] = last_x[b] = iteration;
+      first_y[b] = min_y[b] = max_y[b] = last_y[b] = average;
+    } else {
+      var b = buckets - 1;
+      if (average < min_y[b]) {
+        min_x[b] = iteration;
+        min_y[b] = average;
+      }
+      if (average > max_y[b]) {
+        max_x[b] = iteration;
+        max_y[b] = average;
+      }
+      last_x[b] = iteration;
+      last_y[b] = average;
+    }
+    if (++fill == width)
+      fill = 0;
+  }
+
+  /**
+   * Rows added from now on belong to restart r.
+   */
+  public void restart(int r) {
+
+    if (r != restart) {
+      restart = r;
+      restarted = true;
+    }
+  }
+
+  // all buckets are full: merge them pairwise
+  private void compact() {
+
+    for (int b = 0; b < CAPACITY / 2; b++) {
+      int l = 2 * b, r = l + 1;
+      first_x[b] = first_x[l];
+      first_y[b] = first_y[l];
+      var min = min_y[r] < min_y[l] ? r : l;
+      min_x[b] = min_x[min];
+      min_y[b] = min_y[min];
+      var max = max_y[r] > max_y[l] ? r : l;
+      max_x[b] = max_x[max];
+      max_y[b] = max_y[max];
+      last_x[b] = last_x[r];
+      last_y[b] = last_y[r];
+    }
+    buckets = CAPACITY / 2;
+    width *= 2;
+  }
+
+  /**
+   * The decimated series up to iteration limit.
+   */
+  public PlotData data(int limit) {
+
+    var x = new double[head + 4 * buckets];
+    var y = new double[head + 4 * buckets];
+    var size = 0;
+    for (; size < head && head_x[size] <= limit; size++) {
+      x[size] = head_x[size];
+      y[size] = head_y[size];
+    }
+    // buckets take over after the head
+    var from = head > 0 ? head_x[head - 1] : -1;
+    var point = new int[4];
+    for (int b = 0; b < buckets; b++) {
+      point[0] = first_x[b];
+      point[1] = min_x[b];
+      point[2] = max_x[b];
+      point[3] = last_x[b];
+      Arrays.sort(point);
+      for (int k = 0; k < 4; k++) {
+        var i = point[k];
+        if (i <= from || i > limit || (k > 0 && i == point[k - 1]))
+          continue;
+        x[size] = i;
+        y[size++] = i == first_x[b] ? first_y[b]
+                : i == min_x[b] ? min_y[b]
+                : i == max_x[b] ? max_y[b] : last_y[b];
+      }
+    }
+    var restarts = (int) restart_x.stream().filter(i -> i <= limit).count();
+    var rx = new double[restarts];
+    var ry = new double[restarts];
+    for (int r = 0; r < restarts; r++) {
+      rx[r] = restart_x.get(r);
+      ry[r] = restart_y.get(r);
+    }
+    return new PlotData(Arrays.copyOf(x, size), Arrays.copyOf(y, size), rx, ry);
+  }
+
+  /**
+   * Passes every row on to trace, adding its average to this series.
+   */
+  public TraceWriter record(TraceWriter trace) {
+
+    return new TraceWriter() {
+
+      @Override
+      public void write(int iteration, double average, double[] parents, double[] offspring)
+              throws IOException {
+
+        trace.write(iteration, average, parents, offspring);
+        add(iteration, average);
+      }
+
+      @Override
+      public void restart(int r) {
+
+        trace.restart(r);
+        PlotSeries.this.restart(r);
+      }
+
+      @Override
+      public long checkpoint() throws IOException {
+
+        return trace.checkpoint();
+      }
+
+      @Override
+      public void close() throws IOException {
+
+        trace.close();
+      }
+    };
+  }
+}
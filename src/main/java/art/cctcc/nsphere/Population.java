@@ -0,0 +1,123 @@
+/*
+ * Copyright 2022 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.nsphere;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Structure-of-arrays population: member i owns chromosome
+ * {@code chromosomes[i*n .. i*n+n)}, sigmas {@code sigmas[i*m .. i*m+m)} and
+ * {@code evals[i]}. Buffers are allocated once and reused every generation.
+ * Subclasses store the chromosomes otherwise and leave {@code chromosomes}
+ * null.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+public class Population {
+
+  public final int size;
+  public final int n;
+  public final int m;
+
+  public final double[] chromosomes;
+  public final double[] sigmas;
+  public final double[] evals;
+
+  public Population(int size, int n, int m) {
+
+    this(size, n, m, new double[size * n]);
+  }
+
+  protected Population(int size, int n, int m, double[] chromosomes) {
+
+    this.size = size;
+    this.n = n;
+    this.m = m;
+    this.chromosomes = chromosomes;
+    this.sigmas = new double[size * m];
+    this.evals = new double[size];
+  }
+
+  /**
+   * Coordinate j of member i.
+   */
+  public double get(int i, int j) {
+
+    return chromosomes[i * n + j];
+  }
+
+  /**
+   * Sets every coordinate of every member to x.
+   */
+  public void fill(double x) {
+
+    Arrays.fill(chromosomes, x);
+  }
+
+  public void copy(int i, Population from, int j) {
+
+    System.arraycopy(from.chromosomes, j * n, chromosomes, i * n, n);
+    System.arraycopy(from.sigmas, j * m, sigmas, i * m, m);
+    evals[i] = from.evals[j];
+  }
+
+  public void save(DataOutput out) throws IOException {
+
+    for (var v : chromosomes)
+      out.writeDouble(v);
+    saveStrategy(out);
+  }
+
+  public void restore(DataInput in) throws IOException {
+
+    for (int i = 0; i < chromosomes.length; i++)
+      chromosomes[i] = in.readDouble();
+    restoreStrategy(in);
+  }
+
+  // sigmas and evaluations, after the chromosomes
+  protected void saveStrategy(DataOutput out) throws IOException {
+
+    for (var v : sigmas)
+      out.writeDouble(v);
+    for (var v : evals)
+      out.writeDouble(v);
+  }
+
+  protected void restoreStrategy(DataInput in) throws IOException {
+
+    for (int i = 0; i < sigmas.length; i++)
+      sigmas[i] = in.readDouble();
+    for (int i = 0; i < evals.length; i++)
+      evals[i] = in.readDouble();
+  }
+
+  /**
+   * Snapshot of member i, for reporting only.
+   */
+  public Individual get(int i) {
+
+    var chromosome = new double[n];
+    for (int j = 0; j < n; j++)
+      chromosome[j] = get(i, j);
+    var idv = new Individual(chromosome, Arrays.copyOfRange(sigmas, i * m, i * m + m));
+    idv.setEval(evals[i]);
+    return idv;
+  }
+}
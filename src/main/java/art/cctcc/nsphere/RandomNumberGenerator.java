@@ -16,73 +16,229 @@
 package art.cctcc.nsphere;
 
 import art.cctcc.nsphere.enums.RNG;
-import static art.cctcc.nsphere.enums.RNG.MT;
-import static art.cctcc.nsphere.enums.RNG.XOR;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.random.RandomGenerator;
+import java.util.random.RandomGenerator.JumpableGenerator;
+import java.util.random.RandomGenerator.LeapableGenerator;
+import java.util.random.RandomGenerator.SplittableGenerator;
 import java.util.random.RandomGeneratorFactory;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 import org.apache.commons.math3.random.MersenneTwister;
 
 /**
+ * A single random stream. Streams are derived from a master seed by
+ * {@link #streams(long, RNG, int)} and subdivided with {@link #streams(int)},
+ * so every run (and every worker inside a run) draws from its own
+ * reproducible sequence.
  *
  * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
  */
 public class RandomNumberGenerator {
 
-  public static RNG R = RNG.MT;
-  public static RandomGenerator XOR;
-  public static MersenneTwister MT;
+  private final RandomGenerator generator;
 
-  public static void initRandom(long seed, RNG rng) {
+  private RandomNumberGenerator(RandomGenerator generator) {
 
-    if (rng != null)
-      RandomNumberGenerator.R = rng;
+    this.generator = generator;
+  }
+
+  public static RandomNumberGenerator of(long seed, RNG rng) {
 
-    switch (R) {
+    return new RandomNumberGenerator(switch (rng) {
       case Xoshiro256PlusPlus, XOR ->
-        XOR = RandomGeneratorFactory.of("Xoshiro256PlusPlus").create(seed);
-      case MersenneTwister,MT ->
-        MT = new MersenneTwister(seed);
-    }
+        new Xoshiro256PlusPlus(seed);
+      case L64X128MixRandom, LXM ->
+        RandomGeneratorFactory.of("L64X128MixRandom").create(seed);
+      case MersenneTwister, MT ->
+        new MersenneTwisterGenerator(seed);
+      case Ziggurat, ZIG ->
+        new Ziggurat(new Xoshiro256PlusPlus(seed));
+    });
   }
 
-  public static double rngGaussian(double stddev) {
+  /**
+   * Top-level streams, one per run. Xoshiro streams are 2^192 draws apart
+   * (leaps), leaving room for {@link #streams(int)} to jump inside each.
+   */
+  public static RandomNumberGenerator[] streams(long seed, RNG rng, int count) {
 
-    return switch (R) {
-      case Xoshiro256PlusPlus, XOR ->
-        XOR.nextGaussian(0, stddev);
-      case MersenneTwister,MT ->
-        stddev * MT.nextGaussian();
-    };
+    var master = of(seed, rng).generator;
+    var streams = master instanceof LeapableGenerator leapable
+            ? leapable.leaps(count)
+            : master instanceof SplittableGenerator splittable
+                    ? splittable.splits(count)
+                    : seeds(master, count);
+    return streams.map(RandomNumberGenerator::new)
+            .toArray(RandomNumberGenerator[]::new);
   }
 
-  public static double rngDouble() {
+  /**
+   * Substreams of this stream: Xoshiro jumps of 2^128 draws, LXM splits, or
+   * fresh Mersenne Twisters seeded from this stream.
+   */
+  public RandomNumberGenerator[] streams(int count) {
 
-    return switch (R) {
-      case Xoshiro256PlusPlus, XOR ->
-        XOR.nextDouble();
-      case MersenneTwister,MT ->
-        MT.nextDouble();
-    };
+    var streams = generator instanceof JumpableGenerator jumpable
+            ? jumpable.jumps(count)
+            : generator instanceof SplittableGenerator splittable
+                    ? splittable.splits(count)
+                    : seeds(generator, count);
+    return streams.map(RandomNumberGenerator::new)
+            .toArray(RandomNumberGenerator[]::new);
   }
 
-  public static boolean rngBoolean() {
+  private static Stream<RandomGenerator> seeds(RandomGenerator source, int count) {
 
-    return switch (R) {
-      case Xoshiro256PlusPlus, XOR ->
-        XOR.nextBoolean();
-      case MersenneTwister,MT ->
-        MT.nextBoolean();
-    };
+    return LongStream.generate(source::nextLong)
+            .limit(count)
+            .mapToObj(MersenneTwisterGenerator::new);
   }
 
-  public static int rngInt(int bound) {
+  /**
+   * Whether {@link #save} can capture this stream; L64X128MixRandom keeps
+   * its state to itself.
+   */
+  public boolean saveable() {
 
-    return switch (R) {
-      case Xoshiro256PlusPlus, XOR ->
-        XOR.nextInt(bound);
-      case MersenneTwister,MT ->
-        MT.nextInt(bound);
-    };
+    var g = generator instanceof Ziggurat ziggurat ? ziggurat.uniform : generator;
+    return g instanceof Xoshiro256PlusPlus || g instanceof MersenneTwisterGenerator;
   }
 
+  /**
+   * Writes the generator state, from which {@link #restore} continues the
+   * stream exactly.
+   */
+  public void save(DataOutput out) throws IOException {
+
+    var g = generator instanceof Ziggurat ziggurat ? ziggurat.uniform : generator;
+    if (g instanceof Xoshiro256PlusPlus xoshiro)
+      for (var v : xoshiro.getState())
+        out.writeLong(v);
+    else if (g instanceof MersenneTwisterGenerator mt) {
+      var bytes = mt.getState();
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    } else
+      throw new UnsupportedOperationException(generator + " cannot be saved");
+  }
+
+  public void restore(DataInput in) throws IOException {
+
+    var g = generator instanceof Ziggurat ziggurat ? ziggurat.uniform : generator;
+    if (g instanceof Xoshiro256PlusPlus xoshiro)
+      xoshiro.setState(new long[]{in.readLong(), in.readLong(), in.readLong(), in.readLong()});
+    else if (g instanceof MersenneTwisterGenerator mt) {
+      var bytes = new byte[in.readInt()];
+      in.readFully(bytes);
+      mt.setState(bytes);
+    } else
+      throw new UnsupportedOperationException(generator + " cannot be restored");
+  }
+
+  public double rngGaussian(double stddev) {
+
+    return stddev * generator.nextGaussian();
+  }
+
+  /**
+   * Fills a[from .. to) with standard normal draws.
+   */
+  public void gaussians(double[] a, int from, int to) {
+
+    if (generator instanceof Ziggurat ziggurat)
+      ziggurat.fill(a, from, to);
+    else
+      for (int i = from; i < to; i++)
+        a[i] = generator.nextGaussian();
+  }
+
+  public double rngDouble() {
+
+    return generator.nextDouble();
+  }
+
+  public boolean rngBoolean() {
+
+    return generator.nextBoolean();
+  }
+
+  public int rngInt(int bound) {
+
+    return generator.nextInt(bound);
+  }
+
+  /**
+   * commons-math3 Mersenne Twister seen through the java.util.random API.
+   */
+  private static class MersenneTwisterGenerator implements RandomGenerator {
+
+    private MersenneTwister mt;
+
+    MersenneTwisterGenerator(long seed) {
+
+      this.mt = new MersenneTwister(seed);
+    }
+
+    // commons-math3 generators are Serializable, including the cached gaussian
+    byte[] getState() throws IOException {
+
+      var bytes = new ByteArrayOutputStream();
+      try (var out = new ObjectOutputStream(bytes)) {
+        out.writeObject(mt);
+      }
+      return bytes.toByteArray();
+    }
+
+    void setState(byte[] state) throws IOException {
+
+      try (var in = new ObjectInputStream(new ByteArrayInputStream(state))) {
+        this.mt = (MersenneTwister) in.readObject();
+      } catch (ClassNotFoundException ex) {
+        throw new IOException(ex);
+      }
+    }
+
+    @Override
+    public long nextLong() {
+
+      return mt.nextLong();
+    }
+
+    @Override
+    public int nextInt() {
+
+      return mt.nextInt();
+    }
+
+    @Override
+    public int nextInt(int bound) {
+
+      return mt.nextInt(bound);
+    }
+
+    @Override
+    public double nextDouble() {
+
+      return mt.nextDouble();
+    }
+
+    @Override
+    public boolean nextBoolean() {
+
+      return mt.nextBoolean();
+    }
+
+    @Override
+    public double nextGaussian() {
+
+      return mt.nextGaussian();
+    }
+  }
 }
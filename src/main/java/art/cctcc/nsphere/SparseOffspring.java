@@ -0,0 +1,78 @@
+/*
+ * Copyright 2022 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.nsphere;
+
+import java.util.function.Supplier;
+
+/**
+ * Offspring chromosomes stored as k coordinate changes to a member of a
+ * dense base population: member i is base member {@code origin[i]} with
+ * coordinate {@code indices[i*k+c]} set to {@code values[i*k+c]} for
+ * c = 0 .. k-1, in that order. It costs O(k) instead of O(n) per member, and
+ * is expanded only when selected; the base must not change until then. The
+ * step sizes and evaluations of the offspring stay in a {@link Population}
+ * of width 0.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+public class SparseOffspring {
+
+  public final int size;
+  public final int n;
+  public final int k;
+  public final int[] origin;
+  public final int[] indices;
+  public final double[] values;
+  private final Supplier<Population> base;
+
+  public SparseOffspring(int size, int n, int k, Supplier<Population> base) {
+
+    this.size = size;
+    this.n = n;
+    this.k = k;
+    this.origin = new int[size];
+    this.indices = new int[size * k];
+    this.values = new double[size * k];
+    this.base = base;
+  }
+
+  public Population base() {
+
+    return base.get();
+  }
+
+  /**
+   * Coordinate j of member i.
+   */
+  public double get(int i, int j) {
+
+    // the last change of j wins
+    for (int c = i * k + k - 1; c >= i * k; c--)
+      if (indices[c] == j)
+        return values[c];
+    return base().get(origin[i], j);
+  }
+
+  /**
+   * Writes the dense chromosome of member i to x[o .. o+n).
+   */
+  public void expand(int i, double[] x, int o) {
+
+    System.arraycopy(base().chromosomes, origin[i] * n, x, o, n);
+    for (int c = i * k; c < i * k + k; c++)
+      x[o + indices[c]] = values[c];
+  }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2022 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.nsphere;
+
+import static art.cctcc.nsphere.Tools.time_elapsed;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs many configurations in one JVM, on one pool of params.threads
+ * workers. The sweep file holds one configuration per line, written as
+ * command-line arguments that override those given with {@code sweep=};
+ * a value list like {@code n=10,30} expands into one configuration per
+ * value, and several lists into all their combinations, while a list of
+ * initial sigmas like {@code 0.1,1.0} stays in one configuration. Text
+ * after # is ignored.
+ * <p>
+ * Every configuration gets its own seed, derived from the master seed and
+ * its own arguments unless the line sets one, so editing other lines leaves
+ * it unchanged, and its usual folder under es_data. Configurations that
+ * would share a folder, such as repeated lines, are rejected before any
+ * runs.
+ * Configurations whose folder already holds a summary are skipped, so an
+ * interrupted sweep with an explicit seed resumes where it stopped. A table
+ * of all configurations is written to es_data/&lt;sweep file&gt;.summary.csv.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+public class Sweep {
+
+  public static void run(Parameters params, String... args)
+          throws IOException, InterruptedException, ExecutionException {
+
+    var defaults = Arrays.stream(args)
+            .filter(arg -> !arg.toLowerCase().startsWith("sweep="))
+            .toList();
+    if (defaults.stream().noneMatch(arg -> arg.toLowerCase().startsWith("seed=")))
+      System.out.println("No seed given, the sweep cannot be resumed.");
+    // configurations writing to the same folder would overwrite each other
+    var jobs = new ArrayList<Parameters>();
+    var file = Files.readAllLines(params.sweep);
+    var folders = new HashMap<String, Integer>();
+    for (int i = 0; i < file.size(); i++)
+      for (var job : expand(List.of(file.get(i)), defaults, params.seed)) {
+        var p = new Parameters(job.toArray(String[]::new));
+        var line = folders.putIfAbsent(Batch.folder(p), i + 1);
+        if (line != null)
+          throw new IllegalArgumentException(String.format(
+                  "%s: line %d writes to %s like line %d", params.sweep, i + 1, Batch.folder(p), line));
+        jobs.add(p);
+      }
+    System.out.printf("Sweep %s: %d configurations%n", params.sweep, jobs.size());
+
+    var start = Instant.now();
+    var executor = Executors.newFixedThreadPool(params.threads);
+    var batches = new ArrayList<Batch>();
+    for (var job : jobs)
+      batches.add(new Batch(job, executor, true));
+    executor.shutdown();
+    for (var batch : batches)
+      batch.report();
+    System.out.println("*".repeat(80));
+    System.out.println(time_elapsed(start));
+
+    var name = params.sweep.getFileName().toString().replaceFirst("\\.[^.]*$", "");
+    var summary = Path.of(System.getProperty("user.dir"), "es_data", name + ".summary.csv");
+    Files.createDirectories(summary.getParent());
+    try (var out = Files.newBufferedWriter(summary)) {
+      out.write("Job,Folder,Runs,Iterations,Evaluations,Millis,Status\n");
+      for (int j = 0; j < batches.size(); j++) {
+        var batch = batches.get(j);
+        var runs = 0;
+        var iterations = 0L;
+        var evaluations = 0L;
+        var millis = 0L;
+        var lines = Files.readAllLines(Batch.summary(batch.path));
+        for (var line : lines.subList(1, lines.size())) {
+          // Run,Sigma,Iterations,Evaluations,Stopped,Millis
+          var cells = line.split(",");
+          runs++;
+          iterations += Long.parseLong(cells[2]);
+          evaluations += Long.parseLong(cells[3]);
+          millis += Long.parseLong(cells[5]);
+        }
+        var row = String.format("%d,%s,%d,%.1f,%d,%d,%s",
+                j + 1, Batch.folder(batch.params), runs, runs > 0 ? (double) iterations / runs : 0.0,
+                evaluations, millis, batch.done ? "skipped" : "done");
+        System.out.println(row);
+        out.write(row + "\n");
+      }
+    }
+    System.out.println("Writing summary to " + summary);
+  }
+
+  /**
+   * The argument lists of all configurations of a sweep file, each starting
+   * with the defaults and its seed. Initial sigmas on a line replace those
+   * of the defaults.
+   */
+  public static List<List<String>> expand(List<String> lines, List<String> defaults, long seed) {
+
+    var jobs = new ArrayList<List<String>>();
+    for (var line : lines) {
+      var text = line.replaceFirst("#.*", "").trim();
+      if (text.isEmpty())
+        continue;
+      var tokens = text.split("\\s+");
+      var sigmas = Arrays.stream(tokens).anyMatch(token -> !token.contains("="));
+      var grid = new ArrayList<List<String>>();
+      grid.add(new ArrayList<>());
+      for (var token : tokens) {
+        var values = token.split("=", 2);
+        var alternatives = values.length == 1 ? List.of(values[0].split(","))
+                : Arrays.stream(values[1].split(",")).map(v -> values[0] + "=" + v).toList();
+        var expanded = new ArrayList<List<String>>();
+        for (var args : grid)
+          if (values.length == 1) {
+            // initial sigmas of one configuration
+            var all = new ArrayList<>(args);
+            all.addAll(alternatives);
+            expanded.add(all);
+          } else
+            for (var alternative : alternatives) {
+              var all = new ArrayList<>(args);
+              all.add(alternative);
+              expanded.add(all);
+            }
+        grid = expanded;
+      }
+      for (var args : grid) {
+        var job = new ArrayList<String>();
+        defaults.stream()
+                .filter(arg -> !sigmas || arg.contains("="))
+                .forEach(job::add);
+        // later arguments win, so a seed on the line overrides this one
+        job.add("seed=" + seed(seed, args));
+        job.addAll(args);
+        job.add("batch=true");
+        jobs.add(job);
+      }
+    }
+    return jobs;
+  }
+
+  // FNV-1a hash of the arguments, mixed with the master seed
+  private static long seed(long seed, List<String> args) {
+
+    var hash = 0xcbf29ce484222325L;
+    for (var c : String.join(" ", args).toCharArray()) {
+      hash ^= c;
+      hash *= 0x100000001b3L;
+    }
+    return new SplittableRandom(seed ^ hash).nextLong() & Long.MAX_VALUE;
+  }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2022 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.nsphere;
+
+import java.util.random.RandomGenerator.LeapableGenerator;
+
+/**
+ * xoshiro256++ (Blackman and Vigna), drawing exactly what the JDK's
+ * Xoshiro256PlusPlus draws for the same seed, including its jumps and
+ * leaps, but with an accessible state so that runs can be checkpointed.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+public class Xoshiro256PlusPlus implements LeapableGenerator {
+
+  private static final long GOLDEN_RATIO_64 = 0x9e3779b97f4a7c15L;
+  private static final long SILVER_RATIO_64 = 0x6A09E667F3BCC909L;
+
+  private static final long[] JUMP_TABLE = {
+    0x180ec6d33cfd0abaL, 0xd5a61266f0c9392cL, 0xa9582618e03fc9aaL, 0x39abdc4529b1661cL};
+  private static final long[] LEAP_TABLE = {
+    0x76e15d3efefdcbbfL, 0xc5004e441c522fb3L, 0x77710069854ee241L, 0x39109bb02acbe635L};
+
+  private long x0, x1, x2, x3;
+
+  public Xoshiro256PlusPlus(long seed) {
+
+    // the JDK's seeding: SplitMix from the seed xor-ed with the silver ratio
+    seed ^= SILVER_RATIO_64;
+    this.x0 = mixStafford13(seed);
+    this.x1 = mixStafford13(seed += GOLDEN_RATIO_64);
+    this.x2 = mixStafford13(seed += GOLDEN_RATIO_64);
+    this.x3 = mixStafford13(seed + GOLDEN_RATIO_64);
+    if ((x0 | x1 | x2 | x3) == 0) {
+      // cannot happen for the mixed values, kept from the reference
+      var s = 0L;
+      this.x0 = mixStafford13(s += GOLDEN_RATIO_64);
+      this.x1 = s += GOLDEN_RATIO_64;
+      this.x2 = s += GOLDEN_RATIO_64;
+      this.x3 = s + GOLDEN_RATIO_64;
+    }
+  }
+
+  private Xoshiro256PlusPlus(long[] state) {
+
+    setState(state);
+  }
+
+  private static long mixStafford13(long z) {
+
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+
+  public long[] getState() {
+
+    return new long[]{x0, x1, x2, x3};
+  }
+
+  public void setState(long[] state) {
+
+    this.x0 = state[0];
+    this.x1 = state[1];
+    this.x2 = state[2];
+    this.x3 = state[3];
+  }
+
+  @Override
+  public long nextLong() {
+
+    final long result = Long.rotateLeft(x0 + x3, 23) + x0;
+    long t = x1 << 17;
+    x2 ^= x0;
+    x3 ^= x1;
+    x1 ^= x2;
+    x0 ^= x3;
+    x2 ^= t;
+    x3 = Long.rotateLeft(x3, 45);
+    return result;
+  }
+
+  @Override
+  public Xoshiro256PlusPlus copy() {
+
+    return new Xoshiro256PlusPlus(getState());
+  }
+
+  @Override
+  public void jump() {
+
+    jump(JUMP_TABLE);
+  }
+
+  @Override
+  public double jumpDistance() {
+
+    return 0x1.0p128;
+  }
+
+  @Override
+  public void leap() {
+
+    jump(LEAP_TABLE);
+  }
+
+  @Override
+  public double leapDistance() {
+
+    return 0x1.0p192;
+  }
+
+  private void jump(long[] table) {
+
+    long s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+    for (var word : table)
+      for (int b = 0; b < 64; b++) {
+        if ((word & (1L << b)) != 0) {
+          s0 ^= x0;
+          s1 ^= x1;
+          s2 ^= x2;
+          s3 ^= x3;
+        }
+        nextLong();
+      }
+    x0 = s0;
+    x1 = s1;
+    x2 = s2;
+    x3 = s3;
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2022 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.nsphere;
+
+import java.util.random.RandomGenerator;
+import java.util.random.RandomGenerator.LeapableGenerator;
+
+/**
+ * Standard normal variates by the 128-layer ziggurat of Marsaglia and Tsang
+ * (2000), as refined by Doornik (2005, "An Improved Ziggurat Method to
+ * Generate Normal Random Samples"): one 64-bit draw supplies both the
+ * layer index and the uniform abscissa, and about 98.8% of samples need
+ * nothing else.
+ * <p>
+ * The uniform bits come from a leapable generator, which this class also
+ * exposes, so ziggurat streams derive substreams like their source.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+public class Ziggurat implements LeapableGenerator {
+
+  private static final int C = 128;
+  private static final double R = 3.442619855899;
+  private static final double V = 9.91256303526217e-3;
+  private static final double[] X = new double[C + 1];
+  private static final double[] RATIO = new double[C];
+
+  static {
+    var f = Math.exp(-0.5 * R * R);
+    X[0] = V / f;
+    X[1] = R;
+    X[C] = 0;
+    for (int i = 2; i < C; i++) {
+      X[i] = Math.sqrt(-2 * Math.log(V / X[i - 1] + f));
+      f = Math.exp(-0.5 * X[i] * X[i]);
+    }
+    for (int i = 0; i < C; i++)
+      RATIO[i] = X[i + 1] / X[i];
+  }
+
+  final LeapableGenerator uniform;
+
+  public Ziggurat(LeapableGenerator uniform) {
+
+    this.uniform = uniform;
+  }
+
+  @Override
+  public double nextGaussian() {
+
+    while (true) {
+      var bits = uniform.nextLong();
+      var i = (int) (bits & (C - 1));
+      var u = 2 * ((bits >>> 11) * 0x1.0p-53) - 1;
+      if (Math.abs(u) < RATIO[i])
+        return u * X[i];
+      if (i == 0)
+        return tail(u < 0);
+      var x = u * X[i];
+      var f0 = Math.exp(-0.5 * (X[i] * X[i] - x * x));
+      var f1 = Math.exp(-0.5 * (X[i + 1] * X[i + 1] - x * x));
+      if (f1 + uniform.nextDouble() * (f0 - f1) < 1.0)
+        return x;
+    }
+  }
+
+  /**
+   * Fills a[from .. to) with standard normal variates.
+   */
+  public void fill(double[] a, int from, int to) {
+
+    for (int j = from; j < to; j++) {
+      var bits = uniform.nextLong();
+      var i = (int) (bits & (C - 1));
+      var u = 2 * ((bits >>> 11) * 0x1.0p-53) - 1;
+      a[j] = Math.abs(u) < RATIO[i] ? u * X[i] : slow(i, u);
+    }
+  }
+
+  // rejection step of a sample that failed the rectangle test
+  private double slow(int i, double u) {
+
+    if (i == 0)
+      return tail(u < 0);
+    var x = u * X[i];
+    var f0 = Math.exp(-0.5 * (X[i] * X[i] - x * x));
+    var f1 = Math.exp(-0.5 * (X[i + 1] * X[i + 1] - x * x));
+    return f1 + uniform.nextDouble() * (f0 - f1) < 1.0 ? x : nextGaussian();
+  }
+
+  // Marsaglia's tail method beyond R
+  private double tail(boolean negative) {
+
+    double x, y;
+    do {
+      x = Math.log(positive()) / R;
+      y = Math.log(positive());
+    } while (-2 * y < x * x);
+    return negative ? x - R : R - x;
+  }
+
+  // uniform on (0, 1]
+  private double positive() {
+
+    return ((uniform.nextLong() >>> 11) + 1) * 0x1.0p-53;
+  }
+
+  @Override
+  public long nextLong() {
+
+    return uniform.nextLong();
+  }
+
+  @Override
+  public Ziggurat copy() {
+
+    return new Ziggurat(uniform.copy());
+  }
+
+  @Override
+  public void jump() {
+
+    uniform.jump();
+  }
+
+  @Override
+  public double jumpDistance() {
+
+    return uniform.jumpDistance();
+  }
+
+  @Override
+  public void leap() {
+
+    uniform.leap();
+  }
+
+  @Override
+  public double leapDistance() {
+
+    return uniform.leapDistance();
+  }
+}
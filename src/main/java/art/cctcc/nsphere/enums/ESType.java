@@ -23,7 +23,10 @@ public enum ESType {
 
   FSS("Fixed-step-size"),
   UNSS("Uncorrelated n-step-size"),
-  OneFive("1/5-Rule");
+  OneFive("1/5-Rule"),
+  Sparse("Sparse k-coordinate"),
+  CMA("CMA-ES"),
+  SepCMA("sep-CMA-ES");
 
   public String description;
 
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2022 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.nsphere.enums;
+
+/**
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+public enum ObjectiveType {
+
+  Sphere("Sphere Model"),
+  Ellipsoid("Ellipsoid"),
+  Rosenbrock("Rosenbrock"),
+  Rastrigin("Rastrigin"),
+  Ackley("Ackley"),
+  Cigar("Cigar"),
+  Discus("Discus");
+
+  public String description;
+
+  private ObjectiveType(String description) {
+
+    this.description = description;
+  }
+
+  /**
+   * Case-insensitive lookup, so that {@code f=rosenbrock} works.
+   */
+  public static ObjectiveType of(String name) {
+
+    for (var type : values())
+      if (type.name().equalsIgnoreCase(name))
+        return type;
+    throw new IllegalArgumentException("Unknown objective: " + name);
+  }
+}
@@ -21,6 +21,8 @@ package art.cctcc.nsphere.enums;
  */
 public enum RNG {
 
-  Xoshiro256PlusPlus, XOR, MersenneTwister, MT
+  Xoshiro256PlusPlus, XOR, L64X128MixRandom, LXM, MersenneTwister, MT,
+  // Xoshiro256PlusPlus uniforms, normals by the ziggurat method
+  Ziggurat, ZIG
 
 }
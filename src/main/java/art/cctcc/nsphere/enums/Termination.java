@@ -0,0 +1,40 @@
+/*
+ * Copyright 2022 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.nsphere.enums;
+
+/**
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+public enum Termination {
+
+  Goal("target reached"),
+  Limit("iteration limit"),
+  Stagnation("no improvement of the best"),
+  Sigma("step sizes below threshold"),
+  TolFun("range of evaluations below TolFun"),
+  TolX("parents and step sizes below TolX"),
+  Time("wall-clock budget"),
+  Evaluations("evaluation budget"),
+  Condition("covariance ill-conditioned");
+
+  public String description;
+
+  private Termination(String description) {
+
+    this.description = description;
+  }
+}
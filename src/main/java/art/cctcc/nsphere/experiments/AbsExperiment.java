@@ -15,32 +15,32 @@
  */
 package art.cctcc.nsphere.experiments;
 
-import art.cctcc.nsphere.Individual;
+import art.cctcc.nsphere.FloatPopulation;
+import art.cctcc.nsphere.Population;
+import art.cctcc.nsphere.RandomNumberGenerator;
 import art.cctcc.nsphere.enums.ESMode;
+import art.cctcc.nsphere.enums.Storage;
+import art.cctcc.nsphere.enums.Termination;
+import art.cctcc.nsphere.kernels.Kernels;
+import art.cctcc.nsphere.metrics.ExperimentMetrics;
+import art.cctcc.nsphere.stats.EvalLog;
+import art.cctcc.nsphere.stats.EvalStatistics;
 import static art.cctcc.nsphere.Tools.time_elapsed;
+import art.cctcc.nsphere.trace.TracePolicy;
+import art.cctcc.nsphere.trace.TraceWriter;
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.time.Instant;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 import java.util.stream.IntStream;
-import java.util.stream.Stream;
 
 /**
  *
  * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
- * @param <I> Generic of Individual
  */
-abstract public class AbsExperiment<I extends Individual> {
-
-  public List<Double> evals
-          = Collections.synchronizedList(new ArrayList<>());
+abstract public class AbsExperiment {
 
   public final int n;
   public final ESMode mode;
@@ -49,11 +49,46 @@ abstract public class AbsExperiment<I extends Individual> {
   public final double init_sigma;
   public final int upper_limit;
 
-  protected List<I> parents;
+  protected final RandomNumberGenerator random;
+  // one substream per offspring slot, so offspring i draws the same numbers
+  // whether the generation runs sequentially or in parallel
+  protected RandomNumberGenerator[] streams;
+
+  // mutate and evaluate offspring on the common fork-join pool
+  public boolean parallel;
+  // use the Vector API kernels when available
+  public boolean simd;
+  protected Kernels kernels = Kernels.SCALAR;
+  // how chromosomes are stored, see supports(Storage)
+  public Storage storage = Storage.Double;
+
+  // parents and selected are swapped after every selection
+  protected Population parents;
+  protected Population offspring;
+  private Population selected;
+
+  // selection pool: offspring first, then parents (Plus only)
+  private Selection selection;
+
+  public TerminationCriteria termination = TerminationCriteria.none();
+  // why the last run ended
+  public Termination stopped;
+
+  // periodic snapshots of the run, null = none
+  public Checkpoint checkpoint;
+  // live counters, null = none
+  public ExperimentMetrics metrics;
+  // statistics of every evaluation, striped by population slot
+  public EvalStatistics statistics;
+  // keep a histogram of the evaluations
+  public boolean histogram;
+  // raw log of every evaluation, null = none
+  public EvalLog eval_log;
 
   public int iterations;
 
-  public AbsExperiment(int n, ESMode mode, int mu, int lambda, double init_sigma, int upper_limit) {
+  public AbsExperiment(int n, ESMode mode, int mu, int lambda, double init_sigma, int upper_limit,
+          RandomNumberGenerator random) {
 
     this.n = n;
     this.mode = mode;
@@ -61,63 +96,109 @@ abstract public class AbsExperiment<I extends Individual> {
     this.lambda = lambda;
     this.init_sigma = init_sigma;
     this.upper_limit = upper_limit;
+    this.random = random;
   }
 
   abstract public String getTitle();
 
-  abstract protected double calcEval(I idv);
+  abstract protected double calcEval(Population p, int i);
+
+  /**
+   * Writes offspring member i, drawing its parent from {@link #parents} and
+   * its random numbers from {@code streams[i]} only. Must not write shared
+   * state: it may run concurrently for different i.
+   */
+  abstract protected void mutation(int i);
 
-  abstract protected I mutation(int i);
+  /**
+   * Evaluates offspring member i once it is mutated, the only evaluation
+   * of a member; everything after reads {@code evals}. Same concurrency
+   * contract as {@link #mutation(int)}.
+   */
+  protected void evaluation(int i) {
+
+    setEval(offspring, i, calcEval(offspring, i));
+  }
+
+  /**
+   * Called once all offspring of a generation are mutated and evaluated,
+   * to fold per-offspring results into shared state.
+   */
+  protected void reduce() {
+  }
 
   abstract protected boolean goal();
 
-  abstract protected List<I> generate();
+  /**
+   * Why the strategy cannot usefully go on, checked after every generation;
+   * null to continue.
+   */
+  protected Termination degenerate() {
+
+    return null;
+  }
 
-  public String run(Path csv) {
+  /**
+   * Allocates and initializes the mu parents.
+   */
+  abstract protected Population generate();
 
-    var start = Instant.now();
+  /**
+   * Whether the mutation of this strategy handles chromosomes stored so.
+   */
+  protected boolean supports(Storage storage) {
 
-    var output = new ArrayList<String>();
-    output.add("Iteration,Average,"
-            + IntStream.range(0, mu)
-                    .mapToObj(i -> "X" + i)
-                    .collect(Collectors.joining(",")) + ","
-            + IntStream.range(0, lambda)
-                    .mapToObj(i -> "Y" + i)
-                    .collect(Collectors.joining(",")));
+    return storage == Storage.Double;
+  }
 
-    // ES loop
-    this.parents = generate();
-    var finished = false;
-    while (this.iterations < this.upper_limit && !finished) {
+  /**
+   * Allocates size members with m step sizes each, in the dense storage of
+   * this experiment.
+   */
+  protected Population allocate(int size, int m) {
+
+    return storage == Storage.Float
+            ? new FloatPopulation(size, n, m) : new Population(size, n, m);
+  }
 
-      var offspring = IntStream.range(0, lambda)
-              .mapToObj(this::mutation)
-              .toList();
+  /**
+   * Allocates the lambda offspring, like the parents unless a strategy
+   * stores them otherwise.
+   */
+  protected Population allocateOffspring(int m) {
 
-      var avg = parents.stream()
-              .mapToDouble(this::getEval)
-              .average().getAsDouble();
+    return allocate(lambda, m);
+  }
 
-      var line = String.format("%d,%.5f,", this.iterations, avg)
-              + membersToString(parents) + ","
-              + membersToString(offspring);
+  /**
+   * Writes strategy state a resumed run needs besides the population and
+   * the random streams.
+   */
+  protected void save(DataOutput out) throws IOException {
+  }
 
-      output.add(line);
+  protected void restore(DataInput in) throws IOException {
+  }
 
-      this.parents = Stream.concat(offspring.stream(),
-              mode == ESMode.Plus ? parents.stream() : Stream.empty())
-              .sorted(Comparator.comparing(this::getEval))
-              .limit(mu)
-              .toList();
+  /**
+   * Runs the ES loop, writing every iteration to the trace, which is closed
+   * when the run ends.
+   */
+  public String run(TraceWriter trace) {
 
-      finished = goal();
+    return run(trace, TracePolicy.full());
+  }
 
-      this.iterations++;
-    }
+  /**
+   * Runs the ES loop, writing the iterations sampled by the policy to the
+   * trace. The last iteration is always written.
+   */
+  public String run(TraceWriter trace, TracePolicy policy) {
+
+    var start = Instant.now();
 
-    try {
-      Files.write(csv, output);
+    try (trace) {
+      loop(trace, policy);
     } catch (IOException ex) {
       Logger.getLogger(AbsExperiment.class.getName()).log(Level.SEVERE, null, ex);
     }
@@ -125,22 +206,219 @@ abstract public class AbsExperiment<I extends Individual> {
     return time_elapsed(start);
   }
 
-  public double getEval(I idv) {
+  private void loop(TraceWriter trace, TracePolicy policy) throws IOException {
+
+    var members = policy.members();
+    var none = new double[0];
+    // copy of the latest row not written, for the final row
+    var last_parents = new double[mu];
+    var last_offspring = new double[lambda];
+    var last_avg = 0.0;
+    var written = true;
+
+    // ES loop
+    init();
+    evaluateParents();
+    termination.reset(this);
+    if (checkpoint != null && checkpoint.resume)
+      checkpoint.restore(this, policy);
+    stopped = null;
+    while (this.iterations < this.upper_limit && stopped == null) {
+
+      // every SAMPLE-th generation runs its stages one after another, timed
+      var timed = metrics != null && metrics.sampled(this.iterations);
+      var t0 = timed ? reproduceTimed() : 0L;
+      if (!timed)
+        reproduce();
+
+      var avg = 0.0;
+      var best = Double.POSITIVE_INFINITY;
+      for (int i = 0; i < mu; i++) {
+        var eval = parents.evals[i];
+        avg += eval;
+        best = Math.min(best, eval);
+      }
+      avg /= mu;
+
+      written = policy.sample(this.iterations, best);
+      if (written)
+        trace.write(this.iterations, avg,
+                members ? parents.evals : none, members ? offspring.evals : none);
+      else if (members) {
+        System.arraycopy(parents.evals, 0, last_parents, 0, mu);
+        System.arraycopy(offspring.evals, 0, last_offspring, 0, lambda);
+        last_avg = avg;
+      } else
+        last_avg = avg;
+
+      var t1 = timed ? System.nanoTime() : 0L;
+      select();
+      if (timed)
+        metrics.stages(mutation_time, evaluation_time, adaptation_time,
+                System.nanoTime() - t1, t1 - t0);
+      statistics.drain();
+      if (metrics != null && metrics.due(this.iterations))
+        metrics.generation(this.iterations, evaluations(), best, avg, sigma());
+
+      stopped = goal() ? Termination.Goal : termination.check(this);
+      if (stopped == null)
+        stopped = degenerate();
+
+      this.iterations++;
+
+      if (checkpoint != null && stopped == null && this.iterations < this.upper_limit
+              && checkpoint.due(this.iterations))
+        checkpoint.save(this, trace, policy);
+    }
+    if (stopped == null)
+      stopped = Termination.Limit;
+    if (checkpoint != null)
+      checkpoint.finish();
+
+    if (!written)
+      trace.write(this.iterations - 1, last_avg,
+              members ? last_parents : none, members ? last_offspring : none);
+  }
+
+  void init() {
+
+    if (!supports(storage))
+      throw new IllegalArgumentException(
+              String.format("%s does not support %s storage", getTitle(), storage.description));
+    this.parents = generate();
+    this.offspring = allocateOffspring(parents.m);
+    this.selected = allocate(mu, parents.m);
+    this.selection = new Selection(lambda + (mode == ESMode.Plus ? mu : 0));
+    this.streams = random.streams(lambda);
+    this.statistics = new EvalStatistics(lambda + mu, histogram, eval_log);
+    this.kernels = Kernels.of(simd);
+  }
+
+  // the initial parents, before the first generation
+  void evaluateParents() {
+
+    for (int i = 0; i < mu; i++)
+      setEval(parents, i, calcEval(parents, i));
+  }
+
+  /**
+   * Mutates and evaluates all lambda offspring, each evaluated right after
+   * its mutation.
+   */
+  void reproduce() {
+
+    if (parallel)
+      IntStream.range(0, lambda).parallel().forEach(i -> {
+        mutation(i);
+        evaluation(i);
+      });
+    else
+      for (int i = 0; i < lambda; i++) {
+        mutation(i);
+        evaluation(i);
+      }
+    reduce();
+  }
+
+  private long mutation_time;
+  private long evaluation_time;
+  private long adaptation_time;
+
+  /**
+   * {@link #reproduce()} with mutation, evaluation and {@link #reduce()} as
+   * separate passes, timed; returns the time it ended.
+   */
+  private long reproduceTimed() {
+
+    var t0 = System.nanoTime();
+    if (parallel)
+      IntStream.range(0, lambda).parallel().forEach(this::mutation);
+    else
+      for (int i = 0; i < lambda; i++)
+        mutation(i);
+    var t1 = System.nanoTime();
+    if (parallel)
+      IntStream.range(0, lambda).parallel().forEach(this::evaluation);
+    else
+      for (int i = 0; i < lambda; i++)
+        evaluation(i);
+    var t2 = System.nanoTime();
+    reduce();
+    var t3 = System.nanoTime();
+    mutation_time = t1 - t0;
+    evaluation_time = t2 - t1;
+    adaptation_time = t3 - t2;
+    return t3;
+  }
+
+  /**
+   * Mean step size of the parents.
+   */
+  double sigma() {
 
-    if (idv.getEval() == -1) {
-      var eval = this.calcEval(idv);
-      idv.setEval(eval);
-      evals.add(eval);
+    var sum = 0.0;
+    for (var s : parents.sigmas)
+      sum += s;
+    return sum / parents.sigmas.length;
+  }
+
+  void select() {
+
+    var keys = selection.keys;
+    System.arraycopy(offspring.evals, 0, keys, 0, lambda);
+    System.arraycopy(parents.evals, 0, keys, lambda, keys.length - lambda);
+    var order = selection.select(mu);
+    for (int i = 0; i < mu; i++) {
+      int j = order[i];
+      if (j < lambda)
+        survive(selected, i, j);
+      else
+        selected.copy(i, parents, j - lambda);
     }
-    return idv.getEval();
+    var swap = parents;
+    parents = selected;
+    selected = swap;
+  }
+
+  /**
+   * Copies offspring member j into member i of the next parents.
+   */
+  protected void survive(Population to, int i, int j) {
+
+    to.copy(i, offspring, j);
+  }
+
+  /**
+   * Records the evaluation of member i, computed by {@link #calcEval} or
+   * otherwise, e.g. incrementally from the parent's.
+   */
+  protected void setEval(Population p, int i, double eval) {
+
+    p.evals[i] = eval;
+    statistics.add(stripe(p, i), eval);
+  }
+
+  // offspring slots first, then parent slots; each is evaluated by one
+  // thread at a time
+  private int stripe(Population p, int i) {
+
+    return p == offspring ? i : lambda + i;
+  }
+
+  /**
+   * Whether the random streams of this experiment can be checkpointed.
+   */
+  public boolean saveable() {
+
+    return random.saveable();
   }
 
-  public String membersToString(List<I> members) {
+  /**
+   * Evaluations so far, including those before a resumed checkpoint.
+   */
+  public long evaluations() {
 
-    return members.stream()
-            .map(this::getEval)
-            .map(eval -> String.format("%.3f", eval))
-            .collect(Collectors.joining(","));
+    return statistics.count();
   }
 
   public String getESMode() {
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2022 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.nsphere.experiments;
+
+import art.cctcc.nsphere.trace.TracePolicy;
+import art.cctcc.nsphere.trace.TraceWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Periodic binary snapshot of a run: iteration, trace and evaluation log
+ * lengths, evaluation statistics, trace policy and termination state, all
+ * random streams, the parents and the strategy's own state. The snapshot is taken on the ES
+ * loop's thread and written by a background thread to a temporary file
+ * that then replaces the checkpoint atomically; a snapshot due while the
+ * previous one is still being written is skipped. The checkpoint is deleted
+ * once the run ends.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+public class Checkpoint {
+
+  public static final int MAGIC = 0x4E53434B; // "NSCK"
+  public static final int VERSION = 3;
+
+  public final Path path;
+  // generations between snapshots, 0 = none
+  public final int interval;
+  // restore the run from path when it starts
+  public final boolean resume;
+
+  private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+    var thread = new Thread(r, "checkpoint");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private Future<?> pending;
+
+  public Checkpoint(Path path, int interval, boolean resume) {
+
+    this.path = path;
+    this.interval = interval;
+    this.resume = resume;
+  }
+
+  /**
+   * Length of the trace when the checkpoint at path was taken.
+   */
+  public static long traceSize(Path path) throws IOException {
+
+    try (var in = new DataInputStream(Files.newInputStream(path))) {
+      header(in);
+      in.readInt();
+      return in.readLong();
+    }
+  }
+
+  /**
+   * Length of the evaluation log when the checkpoint at path was taken, 0 if
+   * the run kept none.
+   */
+  public static long evalLogSize(Path path) throws IOException {
+
+    try (var in = new DataInputStream(Files.newInputStream(path))) {
+      header(in);
+      in.readInt();
+      in.readLong();
+      return in.readLong();
+    }
+  }
+
+  boolean due(int iterations) {
+
+    return interval > 0 && iterations % interval == 0;
+  }
+
+  void save(AbsExperiment e, TraceWriter trace, TracePolicy policy) throws IOException {
+
+    if (pending != null && !pending.isDone())
+      return;
+    var bytes = new ByteArrayOutputStream();
+    var out = new DataOutputStream(bytes);
+    out.writeInt(MAGIC);
+    out.writeInt(VERSION);
+    out.writeInt(e.n);
+    out.writeInt(e.mu);
+    out.writeInt(e.lambda);
+    out.writeInt(e.parents.m);
+    out.writeInt(e.storage.ordinal());
+    out.writeInt(e.iterations);
+    out.writeLong(trace.checkpoint());
+    out.writeLong(e.eval_log != null ? e.eval_log.checkpoint() : 0);
+    e.statistics.total().save(out);
+    policy.save(out);
+    e.termination.save(out);
+    e.random.save(out);
+    for (var stream : e.streams)
+      stream.save(out);
+    e.parents.save(out);
+    e.save(out);
+    out.flush();
+    var state = bytes.toByteArray();
+    pending = writer.submit(() -> {
+      var tmp = path.resolveSibling(path.getFileName() + ".tmp");
+      try {
+        Files.write(tmp, state);
+        Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      } catch (IOException ex) {
+        Logger.getLogger(Checkpoint.class.getName()).log(Level.SEVERE, null, ex);
+      }
+    });
+  }
+
+  void restore(AbsExperiment e, TracePolicy policy) throws IOException {
+
+    var in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(path)));
+    var shape = header(in);
+    if (shape[0] != e.n || shape[1] != e.mu || shape[2] != e.lambda || shape[3] != e.parents.m
+            || shape[4] != e.storage.ordinal())
+      throw new IOException("Checkpoint of a different experiment: " + path);
+    e.iterations = in.readInt();
+    in.readLong();
+    in.readLong();
+    e.statistics.restore(in);
+    policy.restore(in);
+    e.termination.restore(in);
+    e.random.restore(in);
+    for (var stream : e.streams)
+      stream.restore(in);
+    e.parents.restore(in);
+    e.restore(in);
+  }
+
+  /**
+   * Waits for the last snapshot and deletes the checkpoint of the finished
+   * run.
+   */
+  void finish() throws IOException {
+
+    writer.shutdown();
+    try {
+      writer.awaitTermination(1, TimeUnit.MINUTES);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+    Files.deleteIfExists(path);
+  }
+
+  // n, mu, lambda, m, storage
+  private static int[] header(DataInput in) throws IOException {
+
+    if (in.readInt() != MAGIC || in.readInt() != VERSION)
+      throw new IOException("Not a checkpoint");
+    return new int[]{in.readInt(), in.readInt(), in.readInt(), in.readInt(), in.readInt()};
+  }
+}
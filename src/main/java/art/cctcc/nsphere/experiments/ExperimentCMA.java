@@ -0,0 +1,325 @@
+/*
+ * Copyright 2022 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.nsphere.experiments;
+
+import art.cctcc.nsphere.Population;
+import art.cctcc.nsphere.RandomNumberGenerator;
+import art.cctcc.nsphere.enums.ESMode;
+import art.cctcc.nsphere.enums.ESType;
+import art.cctcc.nsphere.enums.Termination;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.EigenDecomposition;
+
+/**
+ * CMA-ES with weighted recombination of the mu best offspring, cumulative
+ * step-size adaptation and rank-one plus rank-mu covariance updates, after
+ * Hansen's purecmaes. The covariance is decomposed only every
+ * O(1/((c1+cmu) n)) generations. The separable variant (sep-CMA-ES, Ros and
+ * Hansen 2008) adapts the diagonal only, with O(n) time and memory per
+ * offspring, for large n.
+ * <p>
+ * The distribution mean always moves to the recombined offspring; the mode
+ * only decides whether the reported parents are the mu best offspring or the
+ * mu best so far.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+public class ExperimentCMA extends NDimSphere {
+
+  private final boolean separable;
+
+  private final double[] weights;
+  private final double mueff;
+  private final double cc;
+  private final double cs;
+  private final double c1;
+  private final double cmu;
+  private final double damps;
+  private final double chiN;
+  private final int eigen_period;
+
+  private double sigma;
+  private final double[] mean;
+  private final double[] ps;
+  private final double[] pc;
+  // full: C = B diag(D^2) B^T; separable: C = diag(D^2) and B is unused
+  private final double[][] C;
+  private final double[][] B;
+  private final double[] D;
+  // y = (x - mean) / sigma of each offspring
+  private final double[] y;
+  private final double[] ymean;
+  private final double[] tmp;
+  private final double[] scratch;
+  private final Selection ranking;
+
+  public ExperimentCMA(int n, ESMode mode, int mu, int lambda, double init_sigma,
+          boolean separable, int upper_limit, RandomNumberGenerator random) {
+
+    super(n, mode, mu, lambda, init_sigma, upper_limit, random);
+    if (mu > lambda)
+      throw new IllegalArgumentException("CMA-ES needs mu <= lambda");
+    this.separable = separable;
+
+    this.weights = new double[mu];
+    var sum = 0.0;
+    for (int i = 0; i < mu; i++)
+      sum += weights[i] = Math.log(mu + 0.5) - Math.log(i + 1);
+    var sum_sq = 0.0;
+    for (int i = 0; i < mu; i++) {
+      weights[i] /= sum;
+      sum_sq += weights[i] * weights[i];
+    }
+    this.mueff = 1 / sum_sq;
+
+    this.cc = (4 + mueff / n) / (n + 4 + 2 * mueff / n);
+    this.cs = (mueff + 2) / (n + mueff + 5);
+    var c1 = 2 / ((n + 1.3) * (n + 1.3) + mueff);
+    var cmu = Math.min(1 - c1, 2 * (mueff - 2 + 1 / mueff) / ((n + 2) * (n + 2) + mueff));
+    if (separable) {
+      c1 *= (n + 2) / 3.0;
+      cmu = Math.min(1 - c1, cmu * (n + 2) / 3.0);
+    }
+    this.c1 = c1;
+    this.cmu = cmu;
+    this.damps = 1 + 2 * Math.max(0, Math.sqrt((mueff - 1) / (n + 1)) - 1) + cs;
+    this.chiN = Math.sqrt(n) * (1 - 1.0 / (4 * n) + 1.0 / (21 * n * n));
+    this.eigen_period = Math.max(1, (int) Math.ceil(1 / ((c1 + cmu) * n * 10)));
+
+    this.mean = new double[n];
+    this.ps = new double[n];
+    this.pc = new double[n];
+    this.D = new double[n];
+    this.C = separable ? null : new double[n][n];
+    this.B = separable ? null : new double[n][n];
+    this.y = new double[lambda * n];
+    this.ymean = new double[n];
+    this.tmp = new double[n];
+    this.scratch = new double[n];
+    this.ranking = new Selection(lambda);
+  }
+
+  @Override
+  public String getTitle() {
+
+    return String.format("%s: %s, %s, initial sigma=%.2f",
+            super.getTitle(), getESMode(),
+            (separable ? ESType.SepCMA : ESType.CMA).description, init_sigma);
+  }
+
+  @Override
+  protected Population generate() {
+
+    var p = super.generate();
+    System.arraycopy(p.chromosomes, 0, mean, 0, n);
+    this.sigma = init_sigma;
+    Arrays.fill(D, 1.0);
+    if (!separable)
+      for (int i = 0; i < n; i++) {
+        Arrays.fill(C[i], 0.0);
+        Arrays.fill(B[i], 0.0);
+        C[i][i] = B[i][i] = 1.0;
+      }
+    return p;
+  }
+
+  /**
+   * x = mean + sigma B D z, with z standard normal.
+   */
+  @Override
+  public void mutation(int offspring_index) {
+
+    var random = streams[offspring_index];
+    var x = offspring.chromosomes;
+    var o = offspring_index * n;
+    random.gaussians(x, o, o + n);
+    if (separable)
+      for (int j = 0; j < n; j++)
+        y[o + j] = D[j] * x[o + j];
+    else
+      for (int j = 0; j < n; j++) {
+        var b = B[j];
+        var s = 0.0;
+        for (int k = 0; k < n; k++)
+          s += b[k] * D[k] * x[o + k];
+        y[o + j] = s;
+      }
+    for (int j = 0; j < n; j++)
+      x[o + j] = mean[j] + sigma * y[o + j];
+    offspring.sigmas[offspring_index] = sigma;
+  }
+
+  /**
+   * Moves the mean and adapts sigma and the covariance from the mu best
+   * offspring of this generation.
+   */
+  @Override
+  protected void reduce() {
+
+    System.arraycopy(offspring.evals, 0, ranking.keys, 0, lambda);
+    var order = ranking.select(mu);
+
+    Arrays.fill(ymean, 0.0);
+    for (int i = 0; i < mu; i++) {
+      var o = order[i] * n;
+      for (int j = 0; j < n; j++)
+        ymean[j] += weights[i] * y[o + j];
+    }
+    for (int j = 0; j < n; j++)
+      mean[j] += sigma * ymean[j];
+
+    // C^(-1/2) ymean
+    if (separable)
+      for (int j = 0; j < n; j++)
+        tmp[j] = ymean[j] / D[j];
+    else
+      invSqrtC(ymean, tmp);
+
+    var cs_norm = Math.sqrt(cs * (2 - cs) * mueff);
+    var ps_norm = 0.0;
+    for (int j = 0; j < n; j++) {
+      ps[j] = (1 - cs) * ps[j] + cs_norm * tmp[j];
+      ps_norm += ps[j] * ps[j];
+    }
+    ps_norm = Math.sqrt(ps_norm);
+    var hsig = ps_norm / Math.sqrt(1 - Math.pow(1 - cs, 2 * (iterations + 1))) / chiN
+            < 1.4 + 2.0 / (n + 1) ? 1.0 : 0.0;
+    var cc_norm = Math.sqrt(cc * (2 - cc) * mueff);
+    for (int j = 0; j < n; j++)
+      pc[j] = (1 - cc) * pc[j] + hsig * cc_norm * ymean[j];
+
+    var decay = 1 - c1 - cmu + (1 - hsig) * c1 * cc * (2 - cc);
+    if (separable)
+      for (int j = 0; j < n; j++) {
+        var rank_mu = 0.0;
+        for (int i = 0; i < mu; i++) {
+          var v = y[order[i] * n + j];
+          rank_mu += weights[i] * v * v;
+        }
+        D[j] = Math.sqrt(decay * D[j] * D[j] + c1 * pc[j] * pc[j] + cmu * rank_mu);
+      }
+    else {
+      // lower triangle only, mirrored when decomposed
+      for (int j = 0; j < n; j++) {
+        var c = C[j];
+        for (int k = 0; k <= j; k++)
+          c[k] = decay * c[k] + c1 * pc[j] * pc[k];
+      }
+      for (int i = 0; i < mu; i++) {
+        var o = order[i] * n;
+        var w = cmu * weights[i];
+        for (int j = 0; j < n; j++) {
+          var c = C[j];
+          var wy = w * y[o + j];
+          for (int k = 0; k <= j; k++)
+            c[k] += wy * y[o + k];
+        }
+      }
+      if ((iterations + 1) % eigen_period == 0)
+        decompose();
+    }
+
+    sigma *= Math.exp((cs / damps) * (ps_norm / chiN - 1));
+  }
+
+  /**
+   * Stops once C exceeds a condition number of 1e14 or the step collapses,
+   * as numerical errors then dominate the update.
+   */
+  @Override
+  protected Termination degenerate() {
+
+    var min = Double.POSITIVE_INFINITY;
+    var max = 0.0;
+    for (var d : D) {
+      min = Math.min(min, d);
+      max = Math.max(max, d);
+    }
+    return !(max <= 1e7 * min) || !(sigma * max > 0) || !Double.isFinite(sigma * max)
+            ? Termination.Condition : null;
+  }
+
+  @Override
+  protected void save(DataOutput out) throws IOException {
+
+    out.writeDouble(sigma);
+    for (var v : new double[][]{mean, ps, pc, D})
+      for (var x : v)
+        out.writeDouble(x);
+    if (!separable)
+      for (var rows : new double[][][]{C, B})
+        for (var row : rows)
+          for (var x : row)
+            out.writeDouble(x);
+  }
+
+  @Override
+  protected void restore(DataInput in) throws IOException {
+
+    sigma = in.readDouble();
+    for (var v : new double[][]{mean, ps, pc, D})
+      for (int j = 0; j < n; j++)
+        v[j] = in.readDouble();
+    if (!separable)
+      for (var rows : new double[][][]{C, B})
+        for (var row : rows)
+          for (int j = 0; j < n; j++)
+            row[j] = in.readDouble();
+  }
+
+  /**
+   * out = C^(-1/2) v = B D^-1 B^T v.
+   */
+  private void invSqrtC(double[] v, double[] out) {
+
+    for (int k = 0; k < n; k++) {
+      var s = 0.0;
+      for (int j = 0; j < n; j++)
+        s += B[j][k] * v[j];
+      scratch[k] = s / D[k];
+    }
+    for (int j = 0; j < n; j++) {
+      var b = B[j];
+      var s = 0.0;
+      for (int k = 0; k < n; k++)
+        s += b[k] * scratch[k];
+      out[j] = s;
+    }
+  }
+
+  /**
+   * Updates B and D from the lower triangle of C.
+   */
+  private void decompose() {
+
+    for (int j = 0; j < n; j++)
+      for (int k = 0; k < j; k++)
+        C[k][j] = C[j][k];
+    var eigen = new EigenDecomposition(new Array2DRowRealMatrix(C, false));
+    var values = eigen.getRealEigenvalues();
+    for (int k = 0; k < n; k++) {
+      // rounding may leave tiny negative eigenvalues
+      D[k] = Math.sqrt(Math.max(values[k], Double.MIN_NORMAL));
+      var v = eigen.getEigenvector(k);
+      for (int j = 0; j < n; j++)
+        B[j][k] = v.getEntry(j);
+    }
+  }
+}
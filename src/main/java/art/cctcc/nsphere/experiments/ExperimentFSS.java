@@ -15,11 +15,10 @@
  */
 package art.cctcc.nsphere.experiments;
 
-import art.cctcc.nsphere.Individual;
-import static art.cctcc.nsphere.RandomNumberGenerator.*;
+import art.cctcc.nsphere.RandomNumberGenerator;
 import art.cctcc.nsphere.enums.ESMode;
 import art.cctcc.nsphere.enums.ESType;
-import java.util.Arrays;
+import art.cctcc.nsphere.enums.Storage;
 
 /**
  *
@@ -27,9 +26,10 @@ import java.util.Arrays;
  */
 public class ExperimentFSS extends NDimSphere {
 
-  public ExperimentFSS(int n, ESMode mode, int mu, int lambda, double sigma, int upper_limit) {
+  public ExperimentFSS(int n, ESMode mode, int mu, int lambda, double sigma, int upper_limit,
+          RandomNumberGenerator random) {
 
-    super(n, mode, mu, lambda, sigma, upper_limit);
+    super(n, mode, mu, lambda, sigma, upper_limit, random);
   }
 
   @Override
@@ -40,12 +40,16 @@ public class ExperimentFSS extends NDimSphere {
   }
 
   @Override
-  public Individual mutation(int offspring_index) {
+  public void mutation(int offspring_index) {
 
-    var parent = parents.get(rngInt(mu));
-    var chromosome = new double[n];
-    Arrays.setAll(chromosome, i -> parent.chromosome[i]
-            + rngGaussian(parent.sigmas[0]));
-    return new Individual(chromosome, parent.sigmas);
+    var random = streams[offspring_index];
+    var parent = random.rngInt(mu);
+    mutate(offspring_index, parent, parents.sigmas[parent]);
+  }
+
+  @Override
+  protected boolean supports(Storage storage) {
+
+    return storage != Storage.Sparse;
   }
 }
@@ -15,11 +15,13 @@
  */
 package art.cctcc.nsphere.experiments;
 
-import art.cctcc.nsphere.Individual;
-import static art.cctcc.nsphere.RandomNumberGenerator.*;
+import art.cctcc.nsphere.RandomNumberGenerator;
 import art.cctcc.nsphere.enums.ESMode;
 import art.cctcc.nsphere.enums.ESType;
-import java.util.Arrays;
+import art.cctcc.nsphere.enums.Storage;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 /**
  *
@@ -31,19 +33,24 @@ public class ExperimentOneFive extends NDimSphere {
   private double a;
   private int g_s;
   private int mutation_count;
+  // parent of each offspring, for the success count in reduce()
+  private final int[] origin;
 
   public ExperimentOneFive(int n, ESMode mode,
-          int mu, int lambda, double init_sigma, int g, double a, int upper_limit) {
+          int mu, int lambda, double init_sigma, int g, double a, int upper_limit,
+          RandomNumberGenerator random) {
 
-    super(n, mode, mu, lambda, init_sigma, upper_limit);
+    super(n, mode, mu, lambda, init_sigma, upper_limit, random);
     this.g = g;
     this.a = a;
+    this.origin = new int[lambda];
   }
 
   public ExperimentOneFive(int n, ESMode mode,
-          int mu, int lambda, double sigma, int g, int upper_limit) {
+          int mu, int lambda, double sigma, int g, int upper_limit,
+          RandomNumberGenerator random) {
 
-    this(n, mode, mu, lambda, sigma, g, 0.817, upper_limit);
+    this(n, mode, mu, lambda, sigma, g, 0.817, upper_limit, random);
   }
 
   @Override
@@ -54,31 +61,58 @@ public class ExperimentOneFive extends NDimSphere {
   }
 
   @Override
-  public Individual mutation(int offspring_index) {
-
-    this.mutation_count++;
-    var parent = parents.get(rngInt(mu));
-    var chromosome = new double[n];
-    Arrays.setAll(chromosome, i -> parent.chromosome[i]
-            + rngGaussian(parent.sigmas[0]));
-    var sigmas = Arrays.copyOf(parent.sigmas, 1);
-    var offspring = new Individual(chromosome, sigmas);
-    if (this.getEval(offspring) < this.getEval(parent))
-      this.g_s++;
-    if (this.mutation_count >= this.g) {
-      var p_s = 1.0 * this.g_s / this.g;
-      for (int i = 0; i < offspring.sigmas.length; i++) {
+  public void mutation(int offspring_index) {
+
+    var random = streams[offspring_index];
+    var parent = random.rngInt(mu);
+    origin[offspring_index] = parent;
+    mutate(offspring_index, parent, parents.sigmas[parent]);
+  }
+
+  @Override
+  protected boolean supports(Storage storage) {
+
+    return storage != Storage.Sparse;
+  }
+
+  /**
+   * Success counting of the 1/5 rule, in offspring order after the whole
+   * generation is evaluated.
+   */
+  @Override
+  protected void reduce() {
+
+    for (int i = 0; i < lambda; i++) {
+      var parent = origin[i];
+      this.mutation_count++;
+      if (offspring.evals[i] < parents.evals[parent])
+        this.g_s++;
+      if (this.mutation_count >= this.g) {
+        var p_s = 1.0 * this.g_s / this.g;
         if (p_s > 0.2) {
-          parent.sigmas[i] /= a;
+          parents.sigmas[parent] /= a;
           offspring.sigmas[i] /= a;
         } else if (p_s < 0.2) {
-          parent.sigmas[i] *= a;
+          parents.sigmas[parent] *= a;
           offspring.sigmas[i] *= a;
         }
+        this.g_s = 0;
+        this.mutation_count = 0;
       }
-      this.g_s = 0;
-      this.mutation_count = 0;
     }
-    return offspring;
+  }
+
+  @Override
+  protected void save(DataOutput out) throws IOException {
+
+    out.writeInt(g_s);
+    out.writeInt(mutation_count);
+  }
+
+  @Override
+  protected void restore(DataInput in) throws IOException {
+
+    g_s = in.readInt();
+    mutation_count = in.readInt();
   }
 }
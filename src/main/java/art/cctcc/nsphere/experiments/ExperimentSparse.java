@@ -0,0 +1,185 @@
+/*
+ * Copyright 2022 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.nsphere.experiments;
+
+import art.cctcc.nsphere.Population;
+import art.cctcc.nsphere.RandomNumberGenerator;
+import art.cctcc.nsphere.SparseOffspring;
+import art.cctcc.nsphere.enums.ESMode;
+import art.cctcc.nsphere.enums.ESType;
+import art.cctcc.nsphere.enums.Storage;
+import art.cctcc.nsphere.objectives.Separable;
+
+/**
+ * Fixed step size mutation of k randomly chosen coordinates out of n. For a
+ * separable objective the offspring evaluation is the parent's plus the
+ * change of the k terms, so an offspring costs O(k) arithmetic besides
+ * copying the parent; other objectives are evaluated in full.
+ * Every {@code reeval} generations all members are evaluated in full to
+ * bound the accumulated rounding error.
+ * <p>
+ * With sparse storage, for separable objectives only, offspring are kept as
+ * their k changes instead of a copy of the parent, in O(k) time and memory.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+public class ExperimentSparse extends NDimSphere {
+
+  private final int k;
+  private final int reeval;
+  // parent and evaluation change of each offspring, for evaluation()
+  private final int[] origin;
+  private final double[] delta;
+  // offspring chromosomes with sparse storage, null otherwise
+  private SparseOffspring sparse;
+  // one dense row for calcEval of sparse offspring
+  private double[] expanded;
+
+  public ExperimentSparse(int n, ESMode mode, int mu, int lambda, double sigma,
+          int k, int reeval, int upper_limit, RandomNumberGenerator random) {
+
+    super(n, mode, mu, lambda, sigma, upper_limit, random);
+    this.k = Math.min(k, n);
+    this.reeval = reeval;
+    this.origin = new int[lambda];
+    this.delta = new double[lambda];
+  }
+
+  @Override
+  public String getTitle() {
+
+    return String.format("%s: %s, %s (k=%d), sigma=%.2f",
+            super.getTitle(), getESMode(), ESType.Sparse.description, k, init_sigma);
+  }
+
+  @Override
+  void init() {
+
+    super.init();
+    if (storage == Storage.Sparse && !(objective instanceof Separable))
+      throw new IllegalArgumentException("Sparse storage needs a separable objective");
+  }
+
+  @Override
+  protected boolean supports(Storage storage) {
+
+    return storage != Storage.Float;
+  }
+
+  @Override
+  protected Population allocateOffspring(int m) {
+
+    if (storage != Storage.Sparse)
+      return super.allocateOffspring(m);
+    sparse = new SparseOffspring(lambda, n, k, () -> parents);
+    // step sizes and evaluations only, the chromosomes are in sparse
+    return new Population(lambda, 0, m);
+  }
+
+  @Override
+  public void mutation(int offspring_index) {
+
+    var random = streams[offspring_index];
+    var parent = random.rngInt(mu);
+    origin[offspring_index] = parent;
+    var sigma = parents.sigmas[parent];
+    offspring.sigmas[offspring_index] = sigma;
+    if (sparse != null) {
+      var separable = (Separable) objective;
+      sparse.origin[offspring_index] = parent;
+      var delta = 0.0;
+      for (int c = offspring_index * k; c < offspring_index * k + k; c++) {
+        var j = random.rngInt(n);
+        sparse.indices[c] = j;
+        var old = previous(offspring_index, c);
+        sparse.values[c] = old + random.rngGaussian(sigma);
+        delta += separable.term(j, sparse.values[c]) - separable.term(j, old);
+      }
+      this.delta[offspring_index] = delta;
+      return;
+    }
+    var x = offspring.chromosomes;
+    var o = offspring_index * n;
+    System.arraycopy(parents.chromosomes, parent * n, x, o, n);
+    var delta = 0.0;
+    for (int c = 0; c < k; c++) {
+      var j = random.rngInt(n);
+      var old = x[o + j];
+      x[o + j] = old + random.rngGaussian(sigma);
+      if (objective instanceof Separable separable)
+        delta += separable.term(j, x[o + j]) - separable.term(j, old);
+    }
+    this.delta[offspring_index] = delta;
+  }
+
+  // value of coordinate indices[c] of member i before change c
+  private double previous(int i, int c) {
+
+    var j = sparse.indices[c];
+    for (int d = c - 1; d >= i * k; d--)
+      if (sparse.indices[d] == j)
+        return sparse.values[d];
+    return parents.get(sparse.origin[i], j);
+  }
+
+  /**
+   * Sparse offspring are expanded to evaluate them in full, which only the
+   * periodic re-evaluation does.
+   */
+  @Override
+  public double calcEval(Population p, int i) {
+
+    if (sparse == null || p != offspring)
+      return super.calcEval(p, i);
+    if (expanded == null)
+      expanded = new double[n];
+    sparse.expand(i, expanded, 0);
+    return objective.eval(expanded, 0, n);
+  }
+
+  @Override
+  protected void evaluation(int offspring_index) {
+
+    if (objective instanceof Separable)
+      setEval(offspring, offspring_index,
+              parents.evals[origin[offspring_index]] + delta[offspring_index]);
+    else
+      super.evaluation(offspring_index);
+  }
+
+  @Override
+  protected void survive(Population to, int i, int j) {
+
+    if (sparse == null) {
+      super.survive(to, i, j);
+      return;
+    }
+    sparse.expand(j, to.chromosomes, i * n);
+    System.arraycopy(offspring.sigmas, j * offspring.m, to.sigmas, i * to.m, to.m);
+    to.evals[i] = offspring.evals[j];
+  }
+
+  @Override
+  protected void reduce() {
+
+    if (reeval > 0 && iterations % reeval == reeval - 1) {
+      for (int i = 0; i < mu; i++)
+        setEval(parents, i, calcEval(parents, i));
+      for (int i = 0; i < lambda; i++)
+        setEval(offspring, i, calcEval(offspring, i));
+    }
+  }
+}
@@ -15,13 +15,11 @@
  */
 package art.cctcc.nsphere.experiments;
 
-import art.cctcc.nsphere.Individual;
-import static art.cctcc.nsphere.RandomNumberGenerator.*;
+import art.cctcc.nsphere.Population;
+import art.cctcc.nsphere.RandomNumberGenerator;
 import art.cctcc.nsphere.enums.ESMode;
 import art.cctcc.nsphere.enums.ESType;
 import java.util.Arrays;
-import java.util.List;
-import java.util.stream.Stream;
 
 /**
  *
@@ -33,22 +31,27 @@ public class ExperimentUNSS extends NDimSphere {
   private final double tauPrime;
   private final double epsilon0;
 
+  // polynomial e^x instead of Math.exp, relative error below 3e-10
+  public boolean fast_exp;
+
   public ExperimentUNSS(int n, ESMode mode, int mu, int lambda, double init_sigma,
-          double tau, double tauPrime, double epsilon0, int upper_limit) {
+          double tau, double tauPrime, double epsilon0, int upper_limit,
+          RandomNumberGenerator random) {
 
-    super(n, mode, mu, lambda, init_sigma, upper_limit);
+    super(n, mode, mu, lambda, init_sigma, upper_limit, random);
     this.tau = tau;
     this.tauPrime = tauPrime;
     this.epsilon0 = epsilon0;
   }
 
   public ExperimentUNSS(int n, ESMode mode,
-          int mu, int lambda, double sigma, double epsilon0, int upper_limit) {
+          int mu, int lambda, double sigma, double epsilon0, int upper_limit,
+          RandomNumberGenerator random) {
 
     this(n, mode, mu, lambda, sigma,
             1e-7 / Math.sqrt(2 * Math.sqrt(n)),
             1 / Math.sqrt(2 * n),
-            epsilon0, upper_limit);
+            epsilon0, upper_limit, random);
   }
 
   @Override
@@ -59,33 +62,31 @@ public class ExperimentUNSS extends NDimSphere {
   }
 
   @Override
-  public Individual mutation(int offspring_index) {
+  public void mutation(int offspring_index) {
 
-    var parent = parents.get(rngInt(mu));
-    var gaussian_prime = rngGaussian(1);
+    var random = streams[offspring_index];
+    var parent = random.rngInt(mu);
+    var gaussian_prime = random.rngGaussian(1);
 
-    var chromosome = new double[n];
-    var sigmas = new double[n];
+    var x = offspring.chromosomes;
+    var sigmas = offspring.sigmas;
+    var px = parents.chromosomes;
+    var ps = parents.sigmas;
+    var o = offspring_index * n;
+    var p = parent * n;
 
-    Arrays.setAll(sigmas, i
-            -> Math.max(parent.sigmas[i] * Math.pow(Math.E,
-                    tauPrime * gaussian_prime + tau * rngGaussian(1)),
-                    epsilon0));
-    Arrays.setAll(chromosome, i
-            -> parent.chromosome[i] + sigmas[i] * rngGaussian(1));
-    return new Individual(chromosome, sigmas);
+    random.gaussians(sigmas, o, o + n);
+    random.gaussians(x, o, o + n);
+    kernels.logNormalMutate(x, sigmas, o, px, ps, p, tauPrime * gaussian_prime, tau, epsilon0, n,
+            fast_exp);
   }
 
   @Override
-  protected List<Individual> generate() {
-
-    return Stream.generate(() -> {
-      var chromosome = new double[n];
-      Arrays.fill(chromosome, 1.0);
-      var sigmas = new double[n];
-      Arrays.fill(sigmas, init_sigma);
-      return new Individual(chromosome, sigmas);
-    })
-            .limit(mu).toList();
+  protected Population generate() {
+
+    var p = new Population(mu, n, n);
+    Arrays.fill(p.chromosomes, 1.0);
+    Arrays.fill(p.sigmas, init_sigma);
+    return p;
   }
 }
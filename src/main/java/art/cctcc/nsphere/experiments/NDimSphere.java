@@ -15,55 +15,99 @@
  */
 package art.cctcc.nsphere.experiments;
 
-import art.cctcc.nsphere.Individual;
+import art.cctcc.nsphere.FloatPopulation;
+import art.cctcc.nsphere.Population;
+import art.cctcc.nsphere.RandomNumberGenerator;
 import art.cctcc.nsphere.enums.ESMode;
+import art.cctcc.nsphere.enums.ObjectiveType;
+import art.cctcc.nsphere.enums.Storage;
+import art.cctcc.nsphere.objectives.Objective;
 import java.util.Arrays;
-import java.util.List;
-import java.util.stream.Stream;
 
 /**
+ * Minimizes the selected objective from x = (1, ..., 1); the run reaches its
+ * goal once a parent's evaluation is within the target.
  *
  * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
  */
 public abstract class NDimSphere
-        extends AbsExperiment<Individual> {
+        extends AbsExperiment {
 
-  public NDimSphere(int n, ESMode mode, int mu, int lambda, double sigma, int upper_limit) {
+  public ObjectiveType function = ObjectiveType.Sphere;
+  public double target = 0.0005;
+  protected Objective objective;
 
-    super(n, mode, mu, lambda, sigma, upper_limit);
+  // draws of the float mutation, per offspring slot, in rows of CHUNK
+  private static final int CHUNK = 4096;
+  private double[][] draws;
+
+  public NDimSphere(int n, ESMode mode, int mu, int lambda, double sigma, int upper_limit,
+          RandomNumberGenerator random) {
+
+    super(n, mode, mu, lambda, sigma, upper_limit, random);
   }
 
   @Override
   public String getTitle() {
 
-    return String.format("%d-Dimensional Sphere Model", n);
+    return String.format("%d-Dimensional %s", n, function.description);
+  }
+
+  @Override
+  void init() {
+
+    super.init();
+    this.objective = Objective.of(function, n, kernels);
+    if (storage == Storage.Float)
+      this.draws = new double[lambda][Math.min(n, CHUNK)];
   }
 
   @Override
-  public double calcEval(Individual idv) {
+  public double calcEval(Population p, int i) {
 
-    return Arrays.stream(idv.chromosome).map(i -> i * i).sum();
+    return p instanceof FloatPopulation f
+            ? objective.eval(f.floats, i * n, n)
+            : objective.eval(p.chromosomes, i * n, n);
+  }
+
+  /**
+   * Offspring member i = parent + sigma N(0, I), in either dense storage;
+   * float rows draw their gaussians CHUNK at a time.
+   */
+  protected void mutate(int offspring_index, int parent, double sigma) {
+
+    var random = streams[offspring_index];
+    var o = offspring_index * n;
+    if (offspring instanceof FloatPopulation f) {
+      var g = draws[offspring_index];
+      var p = ((FloatPopulation) parents).floats;
+      for (int from = 0; from < n; from += g.length) {
+        var len = Math.min(g.length, n - from);
+        random.gaussians(g, 0, len);
+        kernels.mutate(f.floats, o + from, p, parent * n + from, g, sigma, len);
+      }
+    } else {
+      random.gaussians(offspring.chromosomes, o, o + n);
+      kernels.mutate(offspring.chromosomes, o, parents.chromosomes, parent * n, sigma, n);
+    }
+    offspring.sigmas[offspring_index] = sigma;
   }
 
   @Override
   protected boolean goal() {
 
-    return parents.stream()
-            .map(Individual::getEval)
-            .filter(eval -> eval != -1)
-            .anyMatch(eval -> eval <= 0.0005);
+    for (var eval : parents.evals)
+      if (eval <= target)
+        return true;
+    return false;
   }
 
   @Override
-  protected List<Individual> generate() {
-
-    return Stream.generate(() -> {
-      var chromosome = new double[n];
-      Arrays.fill(chromosome, 1.0);
-      var sigmas = new double[1];
-      Arrays.fill(sigmas, init_sigma);
-      return new Individual(chromosome, sigmas);
-    })
-            .limit(mu).toList();
+  protected Population generate() {
+
+    var p = allocate(mu, 1);
+    p.fill(1.0);
+    Arrays.fill(p.sigmas, init_sigma);
+    return p;
   }
 }
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2022 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.nsphere.experiments;
+
+import art.cctcc.nsphere.RandomNumberGenerator;
+import art.cctcc.nsphere.enums.RestartStrategy;
+import art.cctcc.nsphere.enums.Termination;
+import art.cctcc.nsphere.metrics.ExperimentMetrics;
+import art.cctcc.nsphere.stats.Accumulator;
+import art.cctcc.nsphere.stats.EvalLog;
+import static art.cctcc.nsphere.Tools.time_elapsed;
+import art.cctcc.nsphere.trace.TracePolicy;
+import art.cctcc.nsphere.trace.TraceWriter;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs an experiment and restarts it, with a fresh population drawn from a
+ * new substream of the run's RNG, whenever it ends without reaching its goal
+ * or the wall-clock budget. IPOP doubles the population at every restart;
+ * BIPOP (Hansen 2009) alternates such large populations with small ones of
+ * random size and smaller initial sigma, picking whichever regime has used
+ * fewer evaluations so far. All restarts share one trace, numbered on from
+ * the previous restart and recording the restart in every row; member
+ * columns are left out as the population size changes, and one evaluation
+ * log, which is closed with the trace. The evaluation budget and the
+ * wall-clock limit cover all restarts together.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+public class RestartController {
+
+  @FunctionalInterface
+  public interface Factory {
+
+    NDimSphere create(int mu, int lambda, double sigma, RandomNumberGenerator random);
+  }
+
+  private static final double[] NONE = new double[0];
+
+  public final RestartStrategy strategy;
+  public final int max_restarts;
+  // evaluations over all restarts, 0 = unlimited
+  public final long budget;
+  // wall-clock seconds over all restarts, from the experiments' criteria
+  private double time;
+  private long started;
+
+  private final Factory factory;
+  // the run's stream, from which every restart's stream is taken in turn
+  private final RandomNumberGenerator random;
+  // BIPOP's draws, kept apart from every experiment's stream
+  private final RandomNumberGenerator bipop;
+  private final int mu;
+  private final int lambda;
+  private final double sigma;
+
+  // live counters over all restarts, null = none
+  public ExperimentMetrics metrics;
+  // raw log of every evaluation over all restarts, null = none
+  public EvalLog eval_log;
+  // keep a histogram of the evaluations
+  public boolean histogram;
+
+  // the experiment currently or last run
+  public NDimSphere experiment;
+  public int restarts;
+  // totals over all restarts
+  public int iterations;
+  public long evaluations;
+  public Accumulator statistics;
+
+  public RestartController(RestartStrategy strategy, int max_restarts, long budget,
+          int mu, int lambda, double sigma, RandomNumberGenerator random, Factory factory) {
+
+    this.strategy = strategy;
+    this.max_restarts = strategy == RestartStrategy.None ? 0 : max_restarts;
+    this.budget = budget;
+    this.factory = factory;
+    this.mu = mu;
+    this.lambda = lambda;
+    this.sigma = sigma;
+    this.random = random;
+    // without restarts the run draws from the run's stream itself
+    this.bipop = this.max_restarts == 0 ? null : random.streams(1)[0];
+    this.experiment = this.max_restarts == 0
+            ? create(mu, lambda, sigma, random) : create(mu, lambda, sigma, next(lambda));
+  }
+
+  public String getTitle() {
+
+    return strategy == RestartStrategy.None ? experiment.getTitle()
+            : String.format("%s, %s restarts", experiment.getTitle(), strategy);
+  }
+
+  public Termination stopped() {
+
+    return experiment.stopped;
+  }
+
+  public String run(TraceWriter trace, Supplier<TracePolicy> policy) {
+
+    var start = Instant.now();
+    this.started = System.nanoTime();
+    this.time = experiment.termination.time;
+    if (metrics != null)
+      metrics.register();
+
+    try (trace) {
+      statistics = new Accumulator(histogram);
+      var members = strategy == RestartStrategy.None;
+      // BIPOP bookkeeping; the first run counts as a large one
+      var large = 0;
+      var large_evals = 0L;
+      var small_evals = 0L;
+      var small = false;
+      while (true) {
+        trace.restart(restarts);
+        var offset = iterations;
+        experiment.metrics = metrics;
+        experiment.eval_log = eval_log;
+        experiment.histogram = histogram;
+        if (metrics != null)
+          metrics.begin(experiment.getTitle(), restarts, iterations, evaluations);
+        experiment.run(new TraceWriter() {
+
+          @Override
+          public void write(int iteration, double average, double[] parents, double[] offspring)
+                  throws IOException {
+
+            trace.write(offset + iteration, average,
+                    members ? parents : NONE, members ? offspring : NONE);
+          }
+
+          @Override
+          public long checkpoint() throws IOException {
+
+            return trace.checkpoint();
+          }
+
+          @Override
+          public void close() {
+          }
+        }, policy.get());
+        iterations += experiment.iterations;
+        var used = experiment.evaluations();
+        evaluations += used;
+        statistics.merge(experiment.statistics.total());
+        if (metrics != null)
+          metrics.end(iterations, evaluations);
+        if (small)
+          small_evals += used;
+        else
+          large_evals += used;
+
+        if (experiment.stopped == Termination.Goal || experiment.stopped == Termination.Time
+                || restarts >= max_restarts || (budget > 0 && evaluations >= budget)
+                || (time > 0 && seconds() >= time))
+          break;
+        restarts++;
+
+        small = strategy == RestartStrategy.BIPOP && restarts > 1 && small_evals < large_evals;
+        if (small) {
+          var u = bipop.rngDouble();
+          var lambda_large = lambda << large;
+          var lambda_small = Math.max(lambda,
+                  (int) (lambda * Math.pow(0.5 * lambda_large / lambda, u * u)));
+          experiment = create(scaled(lambda_small), lambda_small,
+                  sigma * Math.pow(10, -2 * u), next(lambda_small));
+        } else {
+          large++;
+          experiment = create(scaled(lambda << large), lambda << large, sigma, next(lambda << large));
+        }
+      }
+    } catch (IOException ex) {
+      Logger.getLogger(RestartController.class.getName()).log(Level.SEVERE, null, ex);
+    } finally {
+      if (eval_log != null)
+        try {
+          eval_log.close();
+        } catch (IOException ex) {
+          Logger.getLogger(RestartController.class.getName()).log(Level.SEVERE, null, ex);
+        }
+      if (metrics != null)
+        metrics.unregister();
+    }
+
+    return time_elapsed(start);
+  }
+
+  /**
+   * The stream of the next restart. An experiment jumps its stream once for
+   * each of its lambda offspring and goes on drawing after the last jump, so
+   * it spans lambda + 1 substreams of the run's stream; skipping all of them
+   * keeps the restarts from replaying one another.
+   */
+  private RandomNumberGenerator next(int lambda) {
+
+    return random.streams(lambda + 1)[0];
+  }
+
+  // mu grows in proportion to lambda
+  private int scaled(int lambda) {
+
+    return Math.max(1, (int) ((long) mu * lambda / this.lambda));
+  }
+
+  private NDimSphere create(int mu, int lambda, double sigma, RandomNumberGenerator random) {
+
+    var e = factory.create(mu, lambda, sigma, random);
+    if (budget > 0)
+      e.termination = e.termination.budget(budget - evaluations);
+    // the first run starts the clock itself
+    if (time > 0)
+      e.termination = e.termination.time(time - seconds());
+    return e;
+  }
+
+  private double seconds() {
+
+    return (System.nanoTime() - started) / 1e9;
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2022 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.nsphere.experiments;
+
+/**
+ * Top-k truncation selection over a primitive key array. Candidates are
+ * ordered by key as by {@link Double#compare}, ties broken by pool index,
+ * which reproduces a stable sort of the pool without sorting (or boxing)
+ * all of it.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+class Selection {
+
+  private static final int INSERTION_SORT_THRESHOLD = 16;
+
+  final double[] keys;
+  private final int[] order;
+
+  Selection(int size) {
+
+    this.keys = new double[size];
+    this.order = new int[size];
+  }
+
+  /**
+   * Returns the pool indices ordered so that the first k are the k smallest
+   * keys in ascending order; entries from k onwards are unordered.
+   */
+  int[] select(int k) {
+
+    for (int i = 0; i < order.length; i++)
+      order[i] = i;
+    var lo = 0;
+    var hi = order.length - 1;
+    // quickselect: narrow [lo, hi] to a small range containing position k;
+    // everything left of lo is then smaller than everything from lo on
+    while (hi - lo > INSERTION_SORT_THRESHOLD) {
+      var p = partition(lo, hi);
+      if (p < k)
+        lo = p + 1;
+      else if (p > k)
+        hi = p - 1;
+      else
+        lo = hi = p;
+    }
+    sort(lo, hi);
+    sort(0, lo - 1);
+    return order;
+  }
+
+  private void sort(int lo, int hi) {
+
+    while (hi - lo > INSERTION_SORT_THRESHOLD) {
+      var p = partition(lo, hi);
+      if (p - lo < hi - p) {
+        sort(lo, p - 1);
+        lo = p + 1;
+      } else {
+        sort(p + 1, hi);
+        hi = p - 1;
+      }
+    }
+    for (int i = lo + 1; i <= hi; i++) {
+      var v = order[i];
+      var j = i - 1;
+      while (j >= lo && less(v, order[j])) {
+        order[j + 1] = order[j];
+        j--;
+      }
+      order[j + 1] = v;
+    }
+  }
+
+  private int partition(int lo, int hi) {
+
+    // median of three as pivot, moved to hi
+    var mid = (lo + hi) >>> 1;
+    if (less(order[mid], order[lo]))
+      swap(mid, lo);
+    if (less(order[hi], order[lo]))
+      swap(hi, lo);
+    if (less(order[mid], order[hi]))
+      swap(mid, hi);
+    var pivot = order[hi];
+    var store = lo;
+    for (int i = lo; i < hi; i++)
+      if (less(order[i], pivot))
+        swap(i, store++);
+    swap(store, hi);
+    return store;
+  }
+
+  // Double.compare order, so NaN keys sort last and -0.0 before 0.0
+  private boolean less(int a, int b) {
+
+    var c = Double.compare(keys[a], keys[b]);
+    return c < 0 || (c == 0 && a < b);
+  }
+
+  private void swap(int i, int j) {
+
+    var t = order[i];
+    order[i] = order[j];
+    order[j] = t;
+  }
+}
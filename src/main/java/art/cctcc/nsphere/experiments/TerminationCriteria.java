@@ -0,0 +1,216 @@
+/*
+ * Copyright 2022 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.nsphere.experiments;
+
+import art.cctcc.nsphere.Population;
+import art.cctcc.nsphere.enums.Termination;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Conditions ending a run early, checked after every selection. A criterion
+ * set to 0 is disabled. Criteria keep state, so every run needs its own
+ * instance.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+public class TerminationCriteria {
+
+  // generations without improvement of the best evaluation
+  public final int stagnation;
+  // all step sizes of the parents below
+  public final double sigma;
+  // range of the current evaluations and of the recent best ones below
+  public final double tol_fun;
+  // parents within tol_x of each other per coordinate, step sizes below
+  public final double tol_x;
+  // wall-clock seconds
+  public final double time;
+  // evaluations
+  public final long evaluations;
+
+  private double best;
+  private int improved;
+  private long deadline;
+  // best evaluation of the recent generations, for TolFun
+  private double[] history;
+
+  public TerminationCriteria(int stagnation, double sigma, double tol_fun, double tol_x,
+          double time, long evaluations) {
+
+    this.stagnation = stagnation;
+    this.sigma = sigma;
+    this.tol_fun = tol_fun;
+    this.tol_x = tol_x;
+    this.time = time;
+    this.evaluations = evaluations;
+  }
+
+  public static TerminationCriteria none() {
+
+    return new TerminationCriteria(0, 0, 0, 0, 0, 0);
+  }
+
+  /**
+   * The same criteria with the evaluation budget lowered to at most the
+   * given one.
+   */
+  public TerminationCriteria budget(long evaluations) {
+
+    return new TerminationCriteria(stagnation, sigma, tol_fun, tol_x, time,
+            this.evaluations > 0 ? Math.min(this.evaluations, evaluations) : evaluations);
+  }
+
+  /**
+   * The same criteria with the wall-clock budget lowered to at most the
+   * given seconds.
+   */
+  public TerminationCriteria time(double time) {
+
+    return new TerminationCriteria(stagnation, sigma, tol_fun, tol_x,
+            this.time > 0 ? Math.min(this.time, time) : time, evaluations);
+  }
+
+  /**
+   * Starts the wall-clock budget and forgets the history of a previous run.
+   */
+  void reset(AbsExperiment e) {
+
+    best = Double.POSITIVE_INFINITY;
+    improved = 0;
+    deadline = time > 0 ? System.nanoTime() + (long) (time * 1e9) : Long.MAX_VALUE;
+    // as in CMA-ES: 10 + 30 n / lambda generations
+    history = new double[10 + (int) Math.ceil(30.0 * e.n / e.lambda)];
+    Arrays.fill(history, Double.NaN);
+  }
+
+  // the wall-clock budget starts again on resume
+  void save(DataOutput out) throws IOException {
+
+    out.writeDouble(best);
+    out.writeInt(improved);
+    out.writeInt(history.length);
+    for (var v : history)
+      out.writeDouble(v);
+  }
+
+  void restore(DataInput in) throws IOException {
+
+    best = in.readDouble();
+    improved = in.readInt();
+    history = new double[in.readInt()];
+    for (int i = 0; i < history.length; i++)
+      history[i] = in.readDouble();
+  }
+
+  /**
+   * The criterion met by the generation just selected, or null to go on.
+   */
+  Termination check(AbsExperiment e) {
+
+    var parents = e.parents;
+    var offspring = e.offspring;
+    var iteration = e.iterations;
+
+    var generation_best = Double.POSITIVE_INFINITY;
+    for (int i = 0; i < parents.size; i++)
+      generation_best = Math.min(generation_best, parents.evals[i]);
+    if (generation_best < best) {
+      best = generation_best;
+      improved = iteration;
+    }
+    if (stagnation > 0 && iteration - improved >= stagnation)
+      return Termination.Stagnation;
+
+    if (sigma > 0 && maxSigma(parents) < sigma)
+      return Termination.Sigma;
+
+    if (tol_fun > 0) {
+      history[iteration % history.length] = generation_best;
+      if (iteration >= history.length) {
+        var min = Double.POSITIVE_INFINITY;
+        var max = Double.NEGATIVE_INFINITY;
+        for (var v : history) {
+          min = Math.min(min, v);
+          max = Math.max(max, v);
+        }
+        for (int i = 0; i < offspring.size; i++) {
+          min = Math.min(min, offspring.evals[i]);
+          max = Math.max(max, offspring.evals[i]);
+        }
+        if (max - min < tol_fun)
+          return Termination.TolFun;
+      }
+    }
+
+    if (tol_x > 0 && maxSigma(parents) < tol_x && maxSpread(parents) < tol_x)
+      return Termination.TolX;
+
+    if (time > 0 && System.nanoTime() > deadline)
+      return Termination.Time;
+
+    if (evaluations > 0 && e.evaluations() >= evaluations)
+      return Termination.Evaluations;
+
+    return null;
+  }
+
+  private static double maxSigma(Population p) {
+
+    var max = 0.0;
+    for (var s : p.sigmas)
+      max = Math.max(max, s);
+    return max;
+  }
+
+  private static double maxSpread(Population p) {
+
+    var max = 0.0;
+    for (int j = 0; j < p.n; j++) {
+      var lo = Double.POSITIVE_INFINITY;
+      var hi = Double.NEGATIVE_INFINITY;
+      for (int i = 0; i < p.size; i++) {
+        var v = p.get(i, j);
+        lo = Math.min(lo, v);
+        hi = Math.max(hi, v);
+      }
+      max = Math.max(max, hi - lo);
+    }
+    return max;
+  }
+
+  @Override
+  public String toString() {
+
+    var criteria = new ArrayList<String>();
+    if (stagnation > 0)
+      criteria.add("stagnation=" + stagnation);
+    if (sigma > 0)
+      criteria.add("sigma<" + sigma);
+    if (tol_fun > 0)
+      criteria.add("TolFun=" + tol_fun);
+    if (tol_x > 0)
+      criteria.add("TolX=" + tol_x);
+    if (time > 0)
+      criteria.add("time=" + time + "s");
+    if (evaluations > 0)
+      criteria.add("evals=" + evaluations);
+    return criteria.isEmpty() ? "none" : String.join(", ", criteria);
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2022 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.nsphere.kernels;
+
+import java.util.logging.Logger;
+
+/**
+ * Inner loops of evaluation and mutation over the flat population arrays.
+ * Random draws are filled into the destination row first; the kernels then
+ * transform them in place.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+public abstract class Kernels {
+
+  public static final Kernels SCALAR = new ScalarKernels();
+
+  /**
+   * Vector API kernels if requested and the JVM was started with
+   * {@code --add-modules jdk.incubator.vector}, scalar ones otherwise.
+   */
+  public static Kernels of(boolean simd) {
+
+    if (simd) {
+      if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent())
+        return VectorHolder.VECTOR;
+      Logger.getLogger(Kernels.class.getName())
+              .warning("jdk.incubator.vector is not available, using scalar kernels");
+    }
+    return SCALAR;
+  }
+
+  /**
+   * Sum of x[from .. from+n)^2.
+   */
+  public abstract double sumOfSquares(double[] x, int from, int n);
+
+  /**
+   * Sum of x[from .. from+n)^2, accumulated in double.
+   */
+  public abstract double sumOfSquares(float[] x, int from, int n);
+
+  /**
+   * x[o+i] = p[q+i] + sigma * x[o+i].
+   */
+  public abstract void mutate(double[] x, int o, double[] p, int q, double sigma, int n);
+
+  /**
+   * x[o+i] = p[q+i] + sigma * g[i] in double, rounded to float; the draws
+   * g are a separate double row, as float chromosomes cannot hold them.
+   */
+  public abstract void mutate(float[] x, int o, float[] p, int q, double[] g, double sigma, int n);
+
+  /**
+   * Log-normal self-adaptation and mutation in one call: the step size
+   * s[o+i] = max(ps[q+i] * e^(shift + tau * s[o+i]), epsilon0), then
+   * x[o+i] = p[q+i] + s[o+i] * x[o+i]. With fast, scalar loops take e^x
+   * from {@link #fastExp(double)}.
+   */
+  public abstract void logNormalMutate(double[] x, double[] s, int o, double[] p, double[] ps, int q,
+          double shift, double tau, double epsilon0, int n, boolean fast);
+
+  static final double LOG2E = 1.4426950408889634;
+  // ln 2 split so that k * LN2_HI is exact for |k| < 2^11
+  static final double LN2_HI = 0.6931471803691238;
+  static final double LN2_LO = 1.9082149292705877e-10;
+  // |x| up to which fastExp needs no guard
+  static final double FAST_EXP_LIMIT = 700;
+  // 1/j! for j = 8 .. 0
+  static final double[] EXP_COEFFICIENTS = {
+    1.0 / 40320, 1.0 / 5040, 1.0 / 720, 1.0 / 120, 1.0 / 24, 1.0 / 6, 0.5, 1, 1};
+
+  /**
+   * e^x within a relative error of 3e-10: e^x = 2^k e^r with
+   * k = round(x / ln 2), and e^r from its Taylor polynomial of degree 8 for
+   * |r| &lt;= ln(2) / 2. Outside |x| &lt; 700, and for NaN, it is
+   * {@link Math#exp}.
+   */
+  public static double fastExp(double x) {
+
+    if (!(Math.abs(x) < FAST_EXP_LIMIT))
+      return Math.exp(x);
+    var k = Math.rint(x * LOG2E);
+    var r = x - k * LN2_HI - k * LN2_LO;
+    var p = EXP_COEFFICIENTS[0];
+    for (int j = 1; j < EXP_COEFFICIENTS.length; j++)
+      p = p * r + EXP_COEFFICIENTS[j];
+    return p * Double.longBitsToDouble((long) (k + 1023) << 52);
+  }
+
+  // loaded only when the vector module is present
+  private static class VectorHolder {
+
+    static final Kernels VECTOR = new VectorKernels();
+  }
+}
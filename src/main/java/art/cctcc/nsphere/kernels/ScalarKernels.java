@@ -0,0 +1,67 @@
+/*
+ * Copyright 2022 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.nsphere.kernels;
+
+/**
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+class ScalarKernels extends Kernels {
+
+  @Override
+  public double sumOfSquares(double[] x, int from, int n) {
+
+    var sum = 0.0;
+    for (int i = from, end = from + n; i < end; i++)
+      sum += x[i] * x[i];
+    return sum;
+  }
+
+  @Override
+  public double sumOfSquares(float[] x, int from, int n) {
+
+    var sum = 0.0;
+    for (int i = from, end = from + n; i < end; i++)
+      sum += (double) x[i] * x[i];
+    return sum;
+  }
+
+  @Override
+  public void mutate(double[] x, int o, double[] p, int q, double sigma, int n) {
+
+    for (int i = 0; i < n; i++)
+      x[o + i] = p[q + i] + sigma * x[o + i];
+  }
+
+  @Override
+  public void mutate(float[] x, int o, float[] p, int q, double[] g, double sigma, int n) {
+
+    for (int i = 0; i < n; i++)
+      x[o + i] = (float) (p[q + i] + sigma * g[i]);
+  }
+
+  @Override
+  public void logNormalMutate(double[] x, double[] s, int o, double[] p, double[] ps, int q,
+          double shift, double tau, double epsilon0, int n, boolean fast) {
+
+    for (int i = 0; i < n; i++) {
+      var v = shift + tau * s[o + i];
+      var sigma = Math.max(ps[q + i] * (fast ? fastExp(v) : Math.exp(v)), epsilon0);
+      s[o + i] = sigma;
+      x[o + i] = p[q + i] + sigma * x[o + i];
+    }
+  }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2022 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.nsphere.kernels;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector API kernels. Sums are reassociated across lanes and products use
+ * fused multiply-add, so results may differ from the scalar kernels in the
+ * last bits.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+class VectorKernels extends Kernels {
+
+  private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+  // as many float lanes as SPECIES has double lanes, widened to SPECIES
+  private static final VectorSpecies<Float> FLOATS = VectorSpecies.of(float.class,
+          VectorShape.forBitSize(SPECIES.vectorBitSize() / 2));
+  // 1.5 * 2^52: adding it rounds to an integer, kept in the low bits
+  private static final double ROUND = 0x1.8p52;
+  private static final long ROUND_BITS = Double.doubleToRawLongBits(ROUND);
+
+  @Override
+  public double sumOfSquares(double[] x, int from, int n) {
+
+    var acc = DoubleVector.zero(SPECIES);
+    var bound = SPECIES.loopBound(n);
+    int i = 0;
+    for (; i < bound; i += SPECIES.length()) {
+      var v = DoubleVector.fromArray(SPECIES, x, from + i);
+      acc = v.fma(v, acc);
+    }
+    var sum = acc.reduceLanes(VectorOperators.ADD);
+    for (; i < n; i++)
+      sum += x[from + i] * x[from + i];
+    return sum;
+  }
+
+  @Override
+  public double sumOfSquares(float[] x, int from, int n) {
+
+    var acc = DoubleVector.zero(SPECIES);
+    var bound = SPECIES.loopBound(n);
+    int i = 0;
+    for (; i < bound; i += SPECIES.length()) {
+      var v = widen(x, from + i);
+      acc = v.fma(v, acc);
+    }
+    var sum = acc.reduceLanes(VectorOperators.ADD);
+    for (; i < n; i++)
+      sum += (double) x[from + i] * x[from + i];
+    return sum;
+  }
+
+  @Override
+  public void mutate(double[] x, int o, double[] p, int q, double sigma, int n) {
+
+    var s = DoubleVector.broadcast(SPECIES, sigma);
+    var bound = SPECIES.loopBound(n);
+    int i = 0;
+    for (; i < bound; i += SPECIES.length())
+      DoubleVector.fromArray(SPECIES, x, o + i)
+              .fma(s, DoubleVector.fromArray(SPECIES, p, q + i))
+              .intoArray(x, o + i);
+    for (; i < n; i++)
+      x[o + i] = p[q + i] + sigma * x[o + i];
+  }
+
+  @Override
+  public void mutate(float[] x, int o, float[] p, int q, double[] g, double sigma, int n) {
+
+    var s = DoubleVector.broadcast(SPECIES, sigma);
+    var bound = SPECIES.loopBound(n);
+    int i = 0;
+    for (; i < bound; i += SPECIES.length()) {
+      var v = DoubleVector.fromArray(SPECIES, g, i).fma(s, widen(p, q + i));
+      ((FloatVector) v.convertShape(VectorOperators.D2F, FLOATS, 0)).intoArray(x, o + i);
+    }
+    for (; i < n; i++)
+      x[o + i] = (float) (p[q + i] + sigma * g[i]);
+  }
+
+  @Override
+  public void logNormalMutate(double[] x, double[] s, int o, double[] p, double[] ps, int q,
+          double shift, double tau, double epsilon0, int n, boolean fast) {
+
+    var bound = SPECIES.loopBound(n);
+    int i = 0;
+    if (fast)
+      // fused, as the polynomial stays in registers
+      for (; i < bound; i += SPECIES.length()) {
+        var sigma = fastExp(DoubleVector.fromArray(SPECIES, s, o + i).fma(tau, shift))
+                .mul(DoubleVector.fromArray(SPECIES, ps, q + i))
+                .max(epsilon0);
+        sigma.intoArray(s, o + i);
+        DoubleVector.fromArray(SPECIES, x, o + i)
+                .fma(sigma, DoubleVector.fromArray(SPECIES, p, q + i))
+                .intoArray(x, o + i);
+      }
+    else {
+      // two passes, as the EXP stub call would spill the registers of a
+      // fused loop
+      for (; i < bound; i += SPECIES.length())
+        DoubleVector.fromArray(SPECIES, s, o + i)
+                .fma(tau, shift)
+                .lanewise(VectorOperators.EXP)
+                .mul(DoubleVector.fromArray(SPECIES, ps, q + i))
+                .max(epsilon0)
+                .intoArray(s, o + i);
+      for (i = 0; i < bound; i += SPECIES.length())
+        DoubleVector.fromArray(SPECIES, x, o + i)
+                .fma(DoubleVector.fromArray(SPECIES, s, o + i),
+                        DoubleVector.fromArray(SPECIES, p, q + i))
+                .intoArray(x, o + i);
+    }
+    for (; i < n; i++) {
+      var v = shift + tau * s[o + i];
+      var sigma = Math.max(ps[q + i] * (fast ? fastExp(v) : Math.exp(v)), epsilon0);
+      s[o + i] = sigma;
+      x[o + i] = p[q + i] + sigma * x[o + i];
+    }
+  }
+
+  /**
+   * {@link Kernels#fastExp(double)} lane-wise: k is rounded by adding and
+   * subtracting 1.5 * 2^52, which leaves k in the low bits of the sum for
+   * 2^k. Lanes outside its range take the EXP stub.
+   */
+  private static DoubleVector fastExp(DoubleVector x) {
+
+    var t = x.fma(LOG2E, ROUND);
+    var k = t.sub(ROUND);
+    var r = x.sub(k.mul(LN2_HI)).sub(k.mul(LN2_LO));
+    var y = DoubleVector.broadcast(SPECIES, EXP_COEFFICIENTS[0]);
+    for (int j = 1; j < EXP_COEFFICIENTS.length; j++)
+      y = y.fma(r, DoubleVector.broadcast(SPECIES, EXP_COEFFICIENTS[j]));
+    y = y.mul(t.reinterpretAsLongs()
+            .sub(ROUND_BITS - 1023)
+            .lanewise(VectorOperators.LSHL, 52)
+            .reinterpretAsDoubles());
+    var outside = x.abs().compare(VectorOperators.LT, FAST_EXP_LIMIT).not();
+    return outside.anyTrue() ? y.blend(x.lanewise(VectorOperators.EXP), outside) : y;
+  }
+
+  private static DoubleVector widen(float[] x, int from) {
+
+    return (DoubleVector) FloatVector.fromArray(FLOATS, x, from)
+            .convertShape(VectorOperators.F2D, SPECIES, 0);
+  }
+}
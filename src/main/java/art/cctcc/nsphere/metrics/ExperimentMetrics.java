@@ -0,0 +1,270 @@
+/*
+ * Copyright 2022 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.nsphere.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Counters of one run (over all its restarts), registered as an MBean under
+ * {@code art.cctcc.nsphere:type=Experiment,name=<name>} while the run lasts.
+ * Values are published, and the stages timed, only every {@link #SAMPLE}
+ * generations, so that the ES loop pays a counter check per generation and
+ * nothing else.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+public class ExperimentMetrics implements ExperimentMetricsMBean {
+
+  public static final int SAMPLE = 64;
+
+  private final String name;
+  // commit a GenerationEvent every jfr generations, 0 = never
+  private final int jfr;
+  private ObjectName object_name;
+
+  private volatile String title = "";
+  private volatile long start;
+  private volatile long end;
+  private volatile long generations;
+  private volatile long evaluations;
+  private volatile double best = Double.POSITIVE_INFINITY;
+  private volatile double mean = Double.NaN;
+  private volatile double sigma = Double.NaN;
+  private volatile long improved;
+  private volatile int restart;
+
+  // totals of the restarts before the current one
+  private long base_generations;
+  private long base_evaluations;
+
+  // stage nanoseconds of the sampled generations
+  private volatile long sampled;
+  private volatile long mutation;
+  private volatile long evaluation;
+  private volatile long adaptation;
+  private volatile long selection;
+  private volatile long output;
+
+  public ExperimentMetrics(String name, int jfr) {
+
+    this.name = name;
+    this.jfr = jfr;
+  }
+
+  public void register() {
+
+    try {
+      object_name = new ObjectName("art.cctcc.nsphere:type=Experiment,name=" + ObjectName.quote(name));
+      ManagementFactory.getPlatformMBeanServer().registerMBean(this, object_name);
+    } catch (JMException ex) {
+      Logger.getLogger(ExperimentMetrics.class.getName()).log(Level.WARNING, null, ex);
+    }
+  }
+
+  public void unregister() {
+
+    try {
+      if (object_name != null)
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(object_name);
+    } catch (JMException ex) {
+      Logger.getLogger(ExperimentMetrics.class.getName()).log(Level.WARNING, null, ex);
+    }
+  }
+
+  /**
+   * A run, or one of its restarts, begins; the totals are those of the
+   * restarts before.
+   */
+  public void begin(String title, int restart, long generations, long evaluations) {
+
+    this.title = title;
+    this.restart = restart;
+    this.base_generations = generations;
+    this.base_evaluations = evaluations;
+    if (start == 0)
+      start = System.nanoTime();
+  }
+
+  /**
+   * A run, or one of its restarts, ended with these totals.
+   */
+  public void end(long generations, long evaluations) {
+
+    this.generations = generations;
+    this.evaluations = evaluations;
+    this.end = System.nanoTime();
+  }
+
+  /**
+   * Whether the coming generation has its stages timed.
+   */
+  public boolean sampled(int iteration) {
+
+    return (iteration & (SAMPLE - 1)) == 0;
+  }
+
+  /**
+   * Whether {@link #generation} wants to hear about this generation.
+   */
+  public boolean due(int iteration) {
+
+    return sampled(iteration) || (jfr > 0 && iteration % jfr == 0);
+  }
+
+  public void stages(long mutation, long evaluation, long adaptation, long selection, long output) {
+
+    this.mutation += mutation;
+    this.evaluation += evaluation;
+    this.adaptation += adaptation;
+    this.selection += selection;
+    this.output += output;
+    this.sampled++;
+  }
+
+  /**
+   * End of generation {@code iteration} of the current restart, if
+   * {@link #due}.
+   */
+  public void generation(int iteration, long evaluations, double best, double mean, double sigma) {
+
+    this.generations = base_generations + iteration + 1;
+    this.evaluations = base_evaluations + evaluations;
+    if (best < this.best) {
+      this.best = best;
+      this.improved = this.generations;
+    }
+    this.mean = mean;
+    this.sigma = sigma;
+    if (jfr > 0 && iteration % jfr == 0) {
+      var e = new GenerationEvent();
+      if (e.isEnabled()) {
+        e.run = name;
+        e.generation = this.generations;
+        e.evaluations = this.evaluations;
+        e.evaluations_per_second = getEvaluationsPerSecond();
+        e.best = best;
+        e.mean = mean;
+        e.sigma = this.sigma;
+        e.restart = restart;
+        e.commit();
+      }
+    }
+  }
+
+  @Override
+  public String getTitle() {
+
+    return title;
+  }
+
+  @Override
+  public long getGenerations() {
+
+    return generations;
+  }
+
+  @Override
+  public long getEvaluations() {
+
+    return evaluations;
+  }
+
+  @Override
+  public double getEvaluationsPerSecond() {
+
+    var elapsed = (end > start ? end : System.nanoTime()) - start;
+    return start == 0 || elapsed == 0 ? 0 : evaluations * 1e9 / elapsed;
+  }
+
+  @Override
+  public long getGenerationsSinceImprovement() {
+
+    return generations - improved;
+  }
+
+  @Override
+  public double getBest() {
+
+    return best;
+  }
+
+  @Override
+  public double getMean() {
+
+    return mean;
+  }
+
+  @Override
+  public double getSigma() {
+
+    return sigma;
+  }
+
+  @Override
+  public double getMutationMillis() {
+
+    return estimate(mutation);
+  }
+
+  @Override
+  public double getEvaluationMillis() {
+
+    return estimate(evaluation);
+  }
+
+  @Override
+  public double getAdaptationMillis() {
+
+    return estimate(adaptation);
+  }
+
+  @Override
+  public double getSelectionMillis() {
+
+    return estimate(selection);
+  }
+
+  @Override
+  public double getOutputMillis() {
+
+    return estimate(output);
+  }
+
+  @Override
+  public int getRestarts() {
+
+    return restart;
+  }
+
+  // sampled nanoseconds scaled up to all generations
+  private double estimate(long nanos) {
+
+    var n = sampled;
+    return n == 0 ? 0 : nanos * 1e-6 * generations / n;
+  }
+
+  @Override
+  public String toString() {
+
+    return String.format("%.0f evals/s, ms in mutation %.0f, evaluation %.0f, adaptation %.0f, selection %.0f, output %.0f",
+            getEvaluationsPerSecond(), getMutationMillis(), getEvaluationMillis(),
+            getAdaptationMillis(), getSelectionMillis(), getOutputMillis());
+  }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2022 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.nsphere.metrics;
+
+/**
+ * JMX view of a running experiment. Times are estimated from sampled
+ * generations, in milliseconds.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+public interface ExperimentMetricsMBean {
+
+  String getTitle();
+
+  long getGenerations();
+
+  long getEvaluations();
+
+  double getEvaluationsPerSecond();
+
+  long getGenerationsSinceImprovement();
+
+  double getBest();
+
+  double getMean();
+
+  double getSigma();
+
+  double getMutationMillis();
+
+  double getEvaluationMillis();
+
+  double getAdaptationMillis();
+
+  double getSelectionMillis();
+
+  double getOutputMillis();
+
+  int getRestarts();
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2022 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.nsphere.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder snapshot of a run, committed every N generations.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+@Name("art.cctcc.nsphere.Generation")
+@Label("ES Generation")
+@Category("nSphereES")
+@Description("Progress of an evolution strategy run")
+public class GenerationEvent extends jdk.jfr.Event {
+
+  @Label("Run")
+  public String run;
+
+  @Label("Generation")
+  public long generation;
+
+  @Label("Evaluations")
+  public long evaluations;
+
+  @Label("Evaluations per Second")
+  public double evaluations_per_second;
+
+  @Label("Best")
+  public double best;
+
+  @Label("Mean")
+  public double mean;
+
+  @Label("Sigma")
+  public double sigma;
+
+  @Label("Restart")
+  public int restart;
+}
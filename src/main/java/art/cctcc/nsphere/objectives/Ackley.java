@@ -0,0 +1,59 @@
+/*
+ * Copyright 2022 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.nsphere.objectives;
+
+/**
+ * f(x) = -20 e^(-0.2 sqrt(mean x_i^2)) - e^(mean cos(2 pi x_i)) + 20 + e.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+public class Ackley implements Objective {
+
+  private static final double TWO_PI = 2.0 * Math.PI;
+
+  @Override
+  public double eval(double[] x, int from, int n) {
+
+    var squares = 0.0;
+    var cosines = 0.0;
+    for (int i = 0; i < n; i++) {
+      var v = x[from + i];
+      squares += v * v;
+      cosines += Math.cos(TWO_PI * v);
+    }
+    return f(squares, cosines, n);
+  }
+
+  @Override
+  public double eval(float[] x, int from, int n) {
+
+    var squares = 0.0;
+    var cosines = 0.0;
+    for (int i = 0; i < n; i++) {
+      double v = x[from + i];
+      squares += v * v;
+      cosines += Math.cos(TWO_PI * v);
+    }
+    return f(squares, cosines, n);
+  }
+
+  private static double f(double squares, double cosines, int n) {
+
+    // clamp the rounding error, f is exactly 0 only at the origin
+    return Math.max(0.0, -20.0 * Math.exp(-0.2 * Math.sqrt(squares / n))
+            - Math.exp(cosines / n) + 20.0 + Math.E);
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2022 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.nsphere.objectives;
+
+import art.cctcc.nsphere.enums.ObjectiveType;
+import art.cctcc.nsphere.kernels.Kernels;
+
+/**
+ * Fitness to be minimized, evaluated on x[from .. from+n) of a flat
+ * population array. Every objective has its optimum f = 0 at the origin, so
+ * all experiments start from the same point x = (1, ..., 1).
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+public interface Objective {
+
+  public static Objective of(ObjectiveType type, int n, Kernels kernels) {
+
+    return switch (type) {
+      case Sphere ->
+        new Sphere(kernels);
+      case Ellipsoid ->
+        WeightedSphere.ellipsoid(n);
+      case Rosenbrock ->
+        new Rosenbrock();
+      case Rastrigin ->
+        new Rastrigin();
+      case Ackley ->
+        new Ackley();
+      case Cigar ->
+        WeightedSphere.cigar(n);
+      case Discus ->
+        WeightedSphere.discus(n);
+    };
+  }
+
+  double eval(double[] x, int from, int n);
+
+  /**
+   * Evaluation of float chromosomes, summed in double.
+   */
+  double eval(float[] x, int from, int n);
+}
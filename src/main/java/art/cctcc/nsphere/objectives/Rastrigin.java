@@ -0,0 +1,54 @@
+/*
+ * Copyright 2022 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.nsphere.objectives;
+
+/**
+ * f(x) = sum x_i^2 - 10 cos(2 pi x_i) + 10.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+public class Rastrigin implements Separable {
+
+  private static final double TWO_PI = 2.0 * Math.PI;
+
+  @Override
+  public double eval(double[] x, int from, int n) {
+
+    var sum = 10.0 * n;
+    for (int i = 0; i < n; i++) {
+      var v = x[from + i];
+      sum += v * v - 10.0 * Math.cos(TWO_PI * v);
+    }
+    return sum;
+  }
+
+  @Override
+  public double eval(float[] x, int from, int n) {
+
+    var sum = 10.0 * n;
+    for (int i = 0; i < n; i++) {
+      double v = x[from + i];
+      sum += v * v - 10.0 * Math.cos(TWO_PI * v);
+    }
+    return sum;
+  }
+
+  @Override
+  public double term(int j, double v) {
+
+    return v * v - 10.0 * Math.cos(TWO_PI * v) + 10.0;
+  }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2022 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.nsphere.objectives;
+
+/**
+ * f(x) = sum_{i<n-1} 100 (z_i^2 - z_{i+1})^2 + (z_i - 1)^2 with z = x + 1,
+ * i.e. Rosenbrock's valley shifted so that the optimum is at the origin.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+public class Rosenbrock implements Objective {
+
+  @Override
+  public double eval(double[] x, int from, int n) {
+
+    var sum = 0.0;
+    var z = x[from] + 1.0;
+    for (int i = 1; i < n; i++) {
+      var next = x[from + i] + 1.0;
+      var a = z * z - next;
+      var b = z - 1.0;
+      sum += 100.0 * a * a + b * b;
+      z = next;
+    }
+    return sum;
+  }
+
+  @Override
+  public double eval(float[] x, int from, int n) {
+
+    var sum = 0.0;
+    var z = x[from] + 1.0;
+    for (int i = 1; i < n; i++) {
+      var next = x[from + i] + 1.0;
+      var a = z * z - next;
+      var b = z - 1.0;
+      sum += 100.0 * a * a + b * b;
+      z = next;
+    }
+    return sum;
+  }
+}
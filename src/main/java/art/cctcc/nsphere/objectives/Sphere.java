@@ -0,0 +1,51 @@
+/*
+ * Copyright 2022 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.nsphere.objectives;
+
+import art.cctcc.nsphere.kernels.Kernels;
+
+/**
+ * f(x) = sum x_i^2, on the (possibly vectorized) evaluation kernel.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+public class Sphere implements Separable {
+
+  private final Kernels kernels;
+
+  public Sphere(Kernels kernels) {
+
+    this.kernels = kernels;
+  }
+
+  @Override
+  public double eval(double[] x, int from, int n) {
+
+    return kernels.sumOfSquares(x, from, n);
+  }
+
+  @Override
+  public double eval(float[] x, int from, int n) {
+
+    return kernels.sumOfSquares(x, from, n);
+  }
+
+  @Override
+  public double term(int j, double v) {
+
+    return v * v;
+  }
+}
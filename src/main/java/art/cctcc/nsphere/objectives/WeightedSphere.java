@@ -0,0 +1,97 @@
+/*
+ * Copyright 2022 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.nsphere.objectives;
+
+import java.util.Arrays;
+
+/**
+ * f(x) = sum w_i x_i^2 with fixed weights, which covers the ill-conditioned
+ * quadratics: ellipsoid, cigar and discus, all with condition number 10^6.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+public class WeightedSphere implements Separable {
+
+  public static final double CONDITION = 1e6;
+
+  private final double[] w;
+
+  public WeightedSphere(double[] w) {
+
+    this.w = w;
+  }
+
+  /**
+   * w_i = 10^(6 i/(n-1)).
+   */
+  public static WeightedSphere ellipsoid(int n) {
+
+    var w = new double[n];
+    for (int i = 0; i < n; i++)
+      w[i] = n > 1 ? Math.pow(CONDITION, (double) i / (n - 1)) : 1.0;
+    return new WeightedSphere(w);
+  }
+
+  /**
+   * w_0 = 1, w_i = 10^6 otherwise.
+   */
+  public static WeightedSphere cigar(int n) {
+
+    var w = new double[n];
+    Arrays.fill(w, CONDITION);
+    w[0] = 1.0;
+    return new WeightedSphere(w);
+  }
+
+  /**
+   * w_0 = 10^6, w_i = 1 otherwise.
+   */
+  public static WeightedSphere discus(int n) {
+
+    var w = new double[n];
+    Arrays.fill(w, 1.0);
+    w[0] = CONDITION;
+    return new WeightedSphere(w);
+  }
+
+  @Override
+  public double eval(double[] x, int from, int n) {
+
+    var sum = 0.0;
+    for (int i = 0; i < n; i++) {
+      var v = x[from + i];
+      sum += w[i] * v * v;
+    }
+    return sum;
+  }
+
+  @Override
+  public double eval(float[] x, int from, int n) {
+
+    var sum = 0.0;
+    for (int i = 0; i < n; i++) {
+      double v = x[from + i];
+      sum += w[i] * v * v;
+    }
+    return sum;
+  }
+
+  @Override
+  public double term(int j, double v) {
+
+    return w[j] * v * v;
+  }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2022 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.nsphere.stats;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Streaming count, min, max, mean and variance (Welford), with an optional
+ * histogram of log10-spaced bins, 4 per decade from 1e-20 to 1e10 plus an
+ * underflow bin (which also holds 0) and an overflow bin. Accumulators
+ * merge exactly in count, min, max and histogram and up to rounding in the
+ * moments (Chan et al.).
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+public class Accumulator {
+
+  public static final int BINS_PER_DECADE = 4;
+  public static final int MIN_EXPONENT = -20;
+  public static final int MAX_EXPONENT = 10;
+  public static final int BINS = (MAX_EXPONENT - MIN_EXPONENT) * BINS_PER_DECADE + 2;
+
+  public long count;
+  public double min = Double.POSITIVE_INFINITY;
+  public double max = Double.NEGATIVE_INFINITY;
+  public double mean;
+  // sum of squared deviations from the mean
+  public double m2;
+  // null unless requested
+  public final long[] histogram;
+
+  public Accumulator(boolean histogram) {
+
+    this.histogram = histogram ? new long[BINS] : null;
+  }
+
+  public void add(double v) {
+
+    count++;
+    min = Math.min(min, v);
+    max = Math.max(max, v);
+    var delta = v - mean;
+    mean += delta / count;
+    m2 += delta * (v - mean);
+    if (histogram != null)
+      histogram[bin(v)]++;
+  }
+
+  public void merge(Accumulator other) {
+
+    if (other.count == 0)
+      return;
+    var total = count + other.count;
+    var delta = other.mean - mean;
+    mean += delta * other.count / total;
+    m2 += other.m2 + delta * delta * count * other.count / total;
+    count = total;
+    min = Math.min(min, other.min);
+    max = Math.max(max, other.max);
+    if (histogram != null && other.histogram != null)
+      for (int i = 0; i < BINS; i++)
+        histogram[i] += other.histogram[i];
+  }
+
+  public void clear() {
+
+    count = 0;
+    min = Double.POSITIVE_INFINITY;
+    max = Double.NEGATIVE_INFINITY;
+    mean = m2 = 0;
+    if (histogram != null)
+      Arrays.fill(histogram, 0);
+  }
+
+  public double variance() {
+
+    return count > 1 ? m2 / (count - 1) : 0;
+  }
+
+  public static int bin(double v) {
+
+    if (!(v >= 1e-20))
+      return 0;
+    var b = (int) Math.floor((Math.log10(v) - MIN_EXPONENT) * BINS_PER_DECADE) + 1;
+    return Math.min(b, BINS - 1);
+  }
+
+  /**
+   * Lower bound of bin b, for b from 1.
+   */
+  public static double lower(int b) {
+
+    return Math.pow(10, MIN_EXPONENT + (b - 1) / (double) BINS_PER_DECADE);
+  }
+
+  /**
+   * Writes the non-empty histogram bins as CSV: lower bound, upper bound,
+   * count.
+   */
+  public void writeHistogram(Path path) throws IOException {
+
+    try (var out = Files.newBufferedWriter(path)) {
+      out.write("Lower,Upper,Count\n");
+      for (int b = 0; b < BINS; b++)
+        if (histogram[b] > 0)
+          out.write(String.format("%s,%s,%d%n",
+                  b == 0 ? "-Infinity" : lower(b),
+                  b == BINS - 1 ? "Infinity" : lower(b + 1), histogram[b]));
+    }
+  }
+
+  public void save(DataOutput out) throws IOException {
+
+    out.writeLong(count);
+    out.writeDouble(min);
+    out.writeDouble(max);
+    out.writeDouble(mean);
+    out.writeDouble(m2);
+    out.writeBoolean(histogram != null);
+    if (histogram != null)
+      for (var c : histogram)
+        out.writeLong(c);
+  }
+
+  /**
+   * Reads a saved accumulator and merges it into this one.
+   */
+  public void restore(DataInput in) throws IOException {
+
+    var saved = new Accumulator(true);
+    saved.count = in.readLong();
+    saved.min = in.readDouble();
+    saved.max = in.readDouble();
+    saved.mean = in.readDouble();
+    saved.m2 = in.readDouble();
+    if (in.readBoolean())
+      for (int i = 0; i < BINS; i++)
+        saved.histogram[i] = in.readLong();
+    merge(saved);
+  }
+
+  @Override
+  public String toString() {
+
+    return count == 0 ? "none" : String.format("min=%g, max=%g, mean=%g, sd=%g",
+            min, max, mean, Math.sqrt(variance()));
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2022 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.nsphere.stats;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Runs of one configuration and initial sigma merged as they finish: at
+ * every grid point of their {@link RunCurve}s, the moments and a quantile
+ * sketch of the trace averages, and a sketch of the evaluations the solved
+ * runs took to reach the target. Memory does not grow with the number of
+ * runs.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+public class Aggregate {
+
+  public static final double[] QUANTILES = {0.1, 0.25, 0.5, 0.75, 0.9};
+
+  public final int[] grid;
+  private final Accumulator[] moments;
+  private final QuantileSketch[] sketches;
+  private final QuantileSketch to_target = new QuantileSketch();
+  private int runs;
+
+  public Aggregate(int[] grid) {
+
+    this.grid = grid;
+    this.moments = new Accumulator[grid.length];
+    this.sketches = new QuantileSketch[grid.length];
+    for (int p = 0; p < grid.length; p++) {
+      moments[p] = new Accumulator(false);
+      sketches[p] = new QuantileSketch();
+    }
+  }
+
+  /**
+   * Merges a finished run; evaluations is the number it took to reach the
+   * target, if solved.
+   */
+  public synchronized void add(RunCurve curve, boolean solved, long evaluations) {
+
+    curve.finish();
+    for (int p = 0; p < grid.length; p++) {
+      var v = curve.values[p];
+      if (!Double.isNaN(v)) {
+        moments[p].add(v);
+        sketches[p].add(v);
+      }
+    }
+    if (solved)
+      to_target.add(evaluations);
+    runs++;
+  }
+
+  public synchronized double[] quantile(double q) {
+
+    var values = new double[grid.length];
+    for (int p = 0; p < grid.length; p++)
+      values[p] = quantile(p, q);
+    return values;
+  }
+
+  // within the exact range, which the sketch may overshoot by its accuracy
+  private double quantile(int p, double q) {
+
+    var m = moments[p];
+    return m.count == 0 ? Double.NaN
+            : Math.max(m.min, Math.min(m.max, sketches[p].quantile(q)));
+  }
+
+  /**
+   * Writes a row per grid point: Sigma, Iteration, Runs, Mean, SD, Min,
+   * Q10, Q25, Median, Q75, Q90, Max.
+   */
+  public synchronized void writeCurves(Writer out, double sigma) throws IOException {
+
+    for (int p = 0; p < grid.length; p++) {
+      var m = moments[p];
+      if (m.count == 0)
+        continue;
+      out.write(String.format("%s,%d,%d,%g,%g,%g", sigma, grid[p], m.count,
+              m.mean, Math.sqrt(m.variance()), m.min));
+      for (var q : QUANTILES)
+        out.write(String.format(",%g", quantile(p, q)));
+      out.write(String.format(",%g%n", m.max));
+    }
+  }
+
+  /**
+   * Writes the empirical distribution of evaluations to the target: Sigma,
+   * Evaluations, Solved, the fraction of all runs solved within that many
+   * evaluations.
+   */
+  public synchronized void writeECDF(Writer out, double sigma) throws IOException {
+
+    var cdf = to_target.cumulative();
+    for (int b = 0; b < cdf[0].length; b++)
+      out.write(String.format("%s,%.0f,%.4f%n", sigma, cdf[0][b], cdf[1][b] / runs));
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2022 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.nsphere.stats;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Opt-in raw log of every evaluation of a run: a header (magic, version)
+ * followed by the evaluations as doubles, in generation and slot order.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+public class EvalLog implements Closeable {
+
+  public static final int MAGIC = 0x4E534556; // "NSEV"
+  public static final int VERSION = 1;
+
+  private final FileChannel channel;
+  private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+
+  /**
+   * Continues from resume_at, as recorded in a checkpoint, unless it is 0.
+   */
+  public EvalLog(Path path, long resume_at) throws IOException {
+
+    if (resume_at == 0) {
+      this.channel = FileChannel.open(path, StandardOpenOption.CREATE,
+              StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+      buffer.putInt(MAGIC).putInt(VERSION);
+    } else {
+      this.channel = FileChannel.open(path, StandardOpenOption.WRITE);
+      channel.truncate(resume_at);
+      channel.position(resume_at);
+    }
+  }
+
+  public void write(double eval) throws IOException {
+
+    if (!buffer.hasRemaining())
+      flush();
+    buffer.putDouble(eval);
+  }
+
+  /**
+   * Writes out the buffered evaluations and returns the length of the log.
+   */
+  public long checkpoint() throws IOException {
+
+    flush();
+    return channel.position();
+  }
+
+  private void flush() throws IOException {
+
+    buffer.flip();
+    while (buffer.hasRemaining())
+      channel.write(buffer);
+    buffer.clear();
+  }
+
+  @Override
+  public void close() throws IOException {
+
+    try (channel) {
+      flush();
+    }
+  }
+}
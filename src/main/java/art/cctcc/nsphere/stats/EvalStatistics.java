@@ -0,0 +1,104 @@
+/*
+ * Copyright 2022 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.nsphere.stats;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Statistics of all evaluations of a run, striped by population slot: the
+ * ES loop evaluates each slot on one thread at a time, so stripes need no
+ * locking, and merging them in slot order gives the same result whether a
+ * generation ran sequentially or in parallel. With a log attached, every
+ * stripe also buffers its values of the current generation, written out in
+ * slot order by {@link #drain}.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+public class EvalStatistics {
+
+  private final Accumulator[] stripes;
+  private final EvalLog log;
+  private final double[][] pending;
+  private final int[] pending_count;
+
+  public EvalStatistics(int stripes, boolean histogram, EvalLog log) {
+
+    this.stripes = new Accumulator[stripes];
+    for (int i = 0; i < stripes; i++)
+      this.stripes[i] = new Accumulator(histogram);
+    this.log = log;
+    this.pending = log == null ? null : new double[stripes][4];
+    this.pending_count = log == null ? null : new int[stripes];
+  }
+
+  public void add(int stripe, double eval) {
+
+    stripes[stripe].add(eval);
+    if (log != null) {
+      var n = pending_count[stripe]++;
+      if (n == pending[stripe].length)
+        pending[stripe] = Arrays.copyOf(pending[stripe], 2 * n);
+      pending[stripe][n] = eval;
+    }
+  }
+
+  /**
+   * Writes the buffered evaluations to the log, stripe by stripe.
+   */
+  public void drain() throws IOException {
+
+    if (log == null)
+      return;
+    for (int s = 0; s < stripes.length; s++) {
+      for (int j = 0; j < pending_count[s]; j++)
+        log.write(pending[s][j]);
+      pending_count[s] = 0;
+    }
+  }
+
+  public long count() {
+
+    var count = 0L;
+    for (var stripe : stripes)
+      count += stripe.count;
+    return count;
+  }
+
+  /**
+   * All stripes merged, in slot order.
+   */
+  public Accumulator total() {
+
+    var total = new Accumulator(stripes[0].histogram != null);
+    for (var stripe : stripes)
+      total.merge(stripe);
+    return total;
+  }
+
+  /**
+   * Replaces the statistics with a saved total, on resume.
+   */
+  public void restore(DataInput in) throws IOException {
+
+    for (var stripe : stripes)
+      stripe.clear();
+    if (pending_count != null)
+      Arrays.fill(pending_count, 0);
+    stripes[0].restore(in);
+  }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2022 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.nsphere.stats;
+
+import java.util.Arrays;
+
+/**
+ * Mergeable quantile sketch with relative accuracy (DDSketch, Masson et al.
+ * 2019): positive values are counted in bins [g^(i-1), g^i) with
+ * g = (1 + ACCURACY) / (1 - ACCURACY), so any quantile is returned within
+ * ACCURACY of the true value, and values at or below MIN are counted as 0.
+ * Memory depends on the range of the values, not their number, and merging
+ * adds counts, so the result does not depend on the order of merging.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+public class QuantileSketch {
+
+  public static final double ACCURACY = 0.01;
+  public static final double MIN = 1e-300;
+  private static final double GAMMA = (1 + ACCURACY) / (1 - ACCURACY);
+  private static final double LOG_GAMMA = Math.log(GAMMA);
+
+  private long[] counts = new long[0];
+  // bin index of counts[0]
+  private int offset;
+  private long zero;
+  private long count;
+
+  public void add(double v) {
+
+    if (Double.isNaN(v))
+      return;
+    count++;
+    if (v <= MIN) {
+      zero++;
+      return;
+    }
+    var i = index(v);
+    grow(i, i);
+    counts[i - offset]++;
+  }
+
+  public void merge(QuantileSketch other) {
+
+    if (other.count == 0)
+      return;
+    count += other.count;
+    zero += other.zero;
+    if (other.counts.length == 0)
+      return;
+    grow(other.offset, other.offset + other.counts.length - 1);
+    for (int j = 0; j < other.counts.length; j++)
+      counts[other.offset + j - offset] += other.counts[j];
+  }
+
+  public long count() {
+
+    return count;
+  }
+
+  /**
+   * The q-quantile, 0 &lt;= q &lt;= 1, NaN if empty.
+   */
+  public double quantile(double q) {
+
+    if (count == 0)
+      return Double.NaN;
+    var rank = (long) (q * (count - 1));
+    if (rank < zero)
+      return 0;
+    var seen = zero;
+    for (int j = 0; j < counts.length; j++) {
+      seen += counts[j];
+      if (rank < seen)
+        return value(offset + j);
+    }
+    return value(offset + counts.length - 1);
+  }
+
+  /**
+   * Upper bounds of the non-empty bins and the number of values up to each,
+   * starting with 0 if any values were counted as 0.
+   */
+  public double[][] cumulative() {
+
+    var bounds = new double[counts.length + 1];
+    var cumulative = new double[counts.length + 1];
+    var size = 0;
+    var seen = zero;
+    if (zero > 0) {
+      bounds[0] = 0;
+      cumulative[size++] = zero;
+    }
+    for (int j = 0; j < counts.length; j++)
+      if (counts[j] > 0) {
+        seen += counts[j];
+        bounds[size] = Math.pow(GAMMA, offset + j);
+        cumulative[size++] = seen;
+      }
+    return new double[][]{Arrays.copyOf(bounds, size), Arrays.copyOf(cumulative, size)};
+  }
+
+  private static int index(double v) {
+
+    return (int) Math.ceil(Math.log(Math.min(v, Double.MAX_VALUE)) / LOG_GAMMA);
+  }
+
+  // the value within ACCURACY of every value in bin i
+  private static double value(int i) {
+
+    return 2 * Math.pow(GAMMA, i) / (GAMMA + 1);
+  }
+
+  // makes counts cover bins from..to
+  private void grow(int from, int to) {
+
+    if (counts.length == 0) {
+      counts = new long[Math.max(16, to - from + 1)];
+      offset = from;
+      return;
+    }
+    var lo = Math.min(from, offset);
+    var hi = Math.max(to, offset + counts.length - 1);
+    if (lo == offset && hi < offset + counts.length)
+      return;
+    // leave room to grow on the side that grew
+    var length = Math.max(hi - lo + 1, 2 * counts.length);
+    var start = lo < offset ? hi - length + 1 : lo;
+    var grown = new long[length];
+    System.arraycopy(counts, 0, grown, offset - start, counts.length);
+    counts = grown;
+    offset = start;
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2022 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.nsphere.stats;
+
+import art.cctcc.nsphere.trace.TraceWriter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Trace averages of one run at fixed, log-spaced iterations, for
+ * aggregation across runs: each grid point takes the average of the last
+ * row at or before it, and once the run ends, its last average is carried
+ * on to the end of the grid.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+public class RunCurve {
+
+  public static final int POINTS_PER_DECADE = 20;
+
+  public final int[] grid;
+  public final double[] values;
+  private int next;
+  private double last = Double.NaN;
+
+  public RunCurve(int[] grid) {
+
+    this.grid = grid;
+    this.values = new double[grid.length];
+    Arrays.fill(values, Double.NaN);
+  }
+
+  /**
+   * Iterations 0 to 9, then POINTS_PER_DECADE per decade, up to the last
+   * iteration before limit.
+   */
+  public static int[] grid(int limit) {
+
+    return IntStream.concat(IntStream.range(0, 10),
+            IntStream.iterate(POINTS_PER_DECADE, k -> k + 1)
+                    .mapToObj(k -> Math.round(Math.pow(10, (double) k / POINTS_PER_DECADE)))
+                    .takeWhile(g -> g < limit)
+                    .mapToInt(Long::intValue))
+            .filter(g -> g < limit)
+            .distinct()
+            .toArray();
+  }
+
+  public void add(int iteration, double average) {
+
+    while (next < grid.length && grid[next] < iteration)
+      values[next++] = last;
+    last = average;
+  }
+
+  /**
+   * Carries the last average on to the end of the grid.
+   */
+  public void finish() {
+
+    while (next < grid.length)
+      values[next++] = last;
+  }
+
+  /**
+   * Passes every row on to trace, adding its average to this curve.
+   */
+  public TraceWriter record(TraceWriter trace) {
+
+    return new TraceWriter() {
+
+      @Override
+      public void write(int iteration, double average, double[] parents, double[] offspring)
+              throws IOException {
+
+        trace.write(iteration, average, parents, offspring);
+        add(iteration, average);
+      }
+
+      @Override
+      public void restart(int r) {
+
+        trace.restart(r);
+      }
+
+      @Override
+      public long checkpoint() throws IOException {
+
+        return trace.checkpoint();
+      }
+
+      @Override
+      public void close() throws IOException {
+
+        trace.close();
+      }
+    };
+  }
+}
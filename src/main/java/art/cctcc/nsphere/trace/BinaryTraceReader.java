@@ -0,0 +1,150 @@
+/*
+ * Copyright 2022 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.nsphere.trace;
+
+import static art.cctcc.nsphere.trace.BinaryTraceWriter.HEADER_SIZE;
+import static art.cctcc.nsphere.trace.BinaryTraceWriter.MAGIC;
+import static art.cctcc.nsphere.trace.BinaryTraceWriter.VERSION;
+import static art.cctcc.nsphere.trace.BinaryTraceWriter.VERSION_RESTARTS;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Random access to a binary trace through memory-mapped windows of whole
+ * records, so traces larger than 2 GB can be read as well.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+public class BinaryTraceReader implements AutoCloseable {
+
+  private static final long WINDOW_SIZE = 1L << 30;
+
+  public final int mu;
+  public final int lambda;
+  public final long records;
+  // version 2: records carry the restart
+  public final boolean restarts;
+
+  private final FileChannel channel;
+  private final int record_size;
+  // offset of the average in a record
+  private final int values;
+  private final long window_records;
+  private MappedByteBuffer window;
+  private long window_start = -1;
+
+  public BinaryTraceReader(Path path) throws IOException {
+
+    this.channel = FileChannel.open(path, StandardOpenOption.READ);
+    var header = ByteBuffer.allocate(HEADER_SIZE);
+    while (header.hasRemaining() && channel.read(header) >= 0);
+    header.flip();
+    var version = header.remaining() < HEADER_SIZE || header.getInt() != MAGIC ? 0 : header.getInt();
+    if (version != VERSION && version != VERSION_RESTARTS) {
+      channel.close();
+      throw new IOException("Not a binary trace: " + path);
+    }
+    this.restarts = version == VERSION_RESTARTS;
+    this.mu = header.getInt();
+    this.lambda = header.getInt();
+    this.record_size = BinaryTraceWriter.recordSize(mu, lambda, restarts);
+    this.values = Integer.BYTES * (restarts ? 2 : 1);
+    this.records = (channel.size() - HEADER_SIZE) / record_size;
+    this.window_records = Math.max(1, WINDOW_SIZE / record_size);
+  }
+
+  public int iteration(long record) throws IOException {
+
+    return window(record).getInt(offset(record));
+  }
+
+  /**
+   * Restart of a record, 0 in traces without restarts.
+   */
+  public int restart(long record) throws IOException {
+
+    return restarts ? window(record).getInt(offset(record) + Integer.BYTES) : 0;
+  }
+
+  public double average(long record) throws IOException {
+
+    return window(record).getDouble(offset(record) + values);
+  }
+
+  /**
+   * Evaluation j of a record: parents are 0 to mu-1, offspring mu onwards.
+   */
+  public float eval(long record, int j) throws IOException {
+
+    return window(record).getFloat(offset(record) + values + Double.BYTES + Float.BYTES * j);
+  }
+
+  private int offset(long record) {
+
+    return (int) ((record - window_start) * record_size);
+  }
+
+  private MappedByteBuffer window(long record) throws IOException {
+
+    if (window_start < 0 || record < window_start || record >= window_start + window_records) {
+      window_start = record / window_records * window_records;
+      var count = Math.min(window_records, records - window_start);
+      window = channel.map(FileChannel.MapMode.READ_ONLY,
+              HEADER_SIZE + window_start * record_size, count * record_size);
+    }
+    return window;
+  }
+
+  public void toCSV(Path csv) throws IOException {
+
+    var parents = new double[mu];
+    var offspring = new double[lambda];
+    try (var writer = new CsvTraceWriter(csv, mu, lambda, restarts, 0)) {
+      for (long r = 0; r < records; r++) {
+        writer.restart(restart(r));
+        for (int j = 0; j < mu; j++)
+          parents[j] = eval(r, j);
+        for (int j = 0; j < lambda; j++)
+          offspring[j] = eval(r, mu + j);
+        writer.write(iteration(r), average(r), parents, offspring);
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+
+    channel.close();
+  }
+
+  /**
+   * Converts a binary trace to CSV: {@code BinaryTraceReader run.bin [run.csv]}.
+   */
+  public static void main(String... args) throws IOException {
+
+    var bin = Path.of(args[0]);
+    var csv = args.length > 1 ? Path.of(args[1])
+            : bin.resolveSibling(bin.getFileName().toString().replaceFirst("\\.bin$", "") + ".csv");
+    try (var reader = new BinaryTraceReader(bin)) {
+      reader.toCSV(csv);
+    }
+    System.out.println("Writing " + csv);
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2022 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.nsphere.trace;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+/**
+ * Binary trace: a header (magic, version, mu, lambda) followed by
+ * fixed-width records of iteration (int), average (double) and the mu
+ * parent and lambda offspring evaluations (float). Traces of runs with
+ * restarts are version 2, with the restart (int) after the iteration.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+public class BinaryTraceWriter implements TraceWriter {
+
+  public static final int MAGIC = 0x4E534553; // "NSES"
+  public static final int VERSION = 1;
+  public static final int VERSION_RESTARTS = 2;
+  public static final int HEADER_SIZE = 16;
+
+  private final FileChannel channel;
+  private final ByteBuffer buffer;
+  private final int flush_interval;
+  private int rows;
+  private final boolean restarts;
+  private int restart;
+
+  public BinaryTraceWriter(Path path, int mu, int lambda, int flush_interval) throws IOException {
+
+    this(path, mu, lambda, false, flush_interval);
+  }
+
+  public BinaryTraceWriter(Path path, int mu, int lambda, boolean restarts, int flush_interval)
+          throws IOException {
+
+    this(path, mu, lambda, restarts, flush_interval, 0);
+  }
+
+  /**
+   * Continues a trace from the given length, as recorded in a checkpoint;
+   * rows written after the checkpoint are discarded.
+   */
+  public BinaryTraceWriter(Path path, int mu, int lambda, boolean restarts, int flush_interval,
+          long resume_at) throws IOException {
+
+    this.channel = CsvTraceWriter.open(path, resume_at);
+    this.flush_interval = flush_interval;
+    this.restarts = restarts;
+    var record = recordSize(mu, lambda, restarts);
+    this.buffer = ByteBuffer.allocate(Math.max(1 << 16, record) / record * record);
+    if (resume_at == 0)
+      buffer.putInt(MAGIC).putInt(restarts ? VERSION_RESTARTS : VERSION).putInt(mu).putInt(lambda);
+  }
+
+  public static int recordSize(int mu, int lambda) {
+
+    return recordSize(mu, lambda, false);
+  }
+
+  public static int recordSize(int mu, int lambda, boolean restarts) {
+
+    return Integer.BYTES * (restarts ? 2 : 1) + Double.BYTES + Float.BYTES * (mu + lambda);
+  }
+
+  @Override
+  public void write(int iteration, double average, double[] parents, double[] offspring)
+          throws IOException {
+
+    if (buffer.remaining() < recordSize(parents.length, offspring.length, restarts))
+      flush();
+    buffer.putInt(iteration);
+    if (restarts)
+      buffer.putInt(restart);
+    buffer.putDouble(average);
+    for (var eval : parents)
+      buffer.putFloat((float) eval);
+    for (var eval : offspring)
+      buffer.putFloat((float) eval);
+    if (flush_interval > 0 && ++rows % flush_interval == 0)
+      flush();
+  }
+
+  @Override
+  public void restart(int r) {
+
+    this.restart = r;
+  }
+
+  @Override
+  public long checkpoint() throws IOException {
+
+    flush();
+    return channel.position();
+  }
+
+  public void flush() throws IOException {
+
+    buffer.flip();
+    while (buffer.hasRemaining())
+      channel.write(buffer);
+    buffer.clear();
+  }
+
+  @Override
+  public void close() throws IOException {
+
+    try (channel) {
+      flush();
+    }
+  }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2022 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.nsphere.trace;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Streams the CSV trace (Iteration, [Restart,] Average, X*, Y*) through a
+ * fixed-size buffer, so memory use does not grow with the number of
+ * iterations.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+public class CsvTraceWriter implements TraceWriter {
+
+  private static final int BUFFER_SIZE = 1 << 16;
+  // longest fields, with their separator
+  private static final int LONG_FIELD = DoubleFormat.LONG_LENGTH + 1;
+  private static final int AVERAGE_FIELD = DoubleFormat.maxLength(5) + 1;
+  private static final int EVAL_FIELD = DoubleFormat.maxLength(3) + 1;
+  private static final byte[] EOL = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+
+  private final FileChannel channel;
+  private final byte[] buffer = new byte[BUFFER_SIZE];
+  private int position;
+  private final int flush_interval;
+  private int rows;
+  private final boolean restarts;
+  private int restart;
+
+  public CsvTraceWriter(Path path, int mu, int lambda, int flush_interval) throws IOException {
+
+    this(path, mu, lambda, false, flush_interval);
+  }
+
+  public CsvTraceWriter(Path path, int mu, int lambda, boolean restarts, int flush_interval)
+          throws IOException {
+
+    this(path, mu, lambda, restarts, flush_interval, 0);
+  }
+
+  /**
+   * Continues a trace from the given length, as recorded in a checkpoint;
+   * rows written after the checkpoint are discarded.
+   */
+  public CsvTraceWriter(Path path, int mu, int lambda, boolean restarts, int flush_interval,
+          long resume_at) throws IOException {
+
+    this.restarts = restarts;
+    this.channel = open(path, resume_at);
+    this.flush_interval = flush_interval;
+    var header = Stream.of(Stream.of("Iteration"),
+            restarts ? Stream.of("Restart") : Stream.<String>empty(),
+            Stream.of("Average"),
+            IntStream.range(0, mu).mapToObj(i -> "X" + i),
+            IntStream.range(0, lambda).mapToObj(i -> "Y" + i))
+            .flatMap(s -> s)
+            .collect(Collectors.joining(","));
+    if (resume_at == 0)
+      put((header + System.lineSeparator()).getBytes(StandardCharsets.US_ASCII));
+  }
+
+  /**
+   * Opens a trace for writing from scratch, or for appending at resume_at
+   * if that is not 0.
+   */
+  static FileChannel open(Path path, long resume_at) throws IOException {
+
+    if (resume_at == 0)
+      return FileChannel.open(path, StandardOpenOption.CREATE,
+              StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    var channel = FileChannel.open(path, StandardOpenOption.WRITE);
+    if (channel.size() < resume_at) {
+      channel.close();
+      throw new IOException("Trace shorter than its checkpoint: " + path);
+    }
+    channel.truncate(resume_at);
+    channel.position(resume_at);
+    return channel;
+  }
+
+  @Override
+  public void write(int iteration, double average, double[] parents, double[] offspring)
+          throws IOException {
+
+    ensure(LONG_FIELD * 2 + AVERAGE_FIELD);
+    position = DoubleFormat.appendLong(buffer, position, iteration);
+    buffer[position++] = ',';
+    if (restarts) {
+      position = DoubleFormat.appendLong(buffer, position, restart);
+      buffer[position++] = ',';
+    }
+    position = DoubleFormat.appendFixed(buffer, position, average, 5);
+    for (var eval : parents) {
+      ensure(EVAL_FIELD);
+      buffer[position++] = ',';
+      position = DoubleFormat.appendFixed(buffer, position, eval, 3);
+    }
+    for (var eval : offspring) {
+      ensure(EVAL_FIELD);
+      buffer[position++] = ',';
+      position = DoubleFormat.appendFixed(buffer, position, eval, 3);
+    }
+    put(EOL);
+    if (flush_interval > 0 && ++rows % flush_interval == 0)
+      flush();
+  }
+
+  @Override
+  public void restart(int r) {
+
+    this.restart = r;
+  }
+
+  @Override
+  public long checkpoint() throws IOException {
+
+    flush();
+    return channel.position();
+  }
+
+  public void flush() throws IOException {
+
+    var bytes = ByteBuffer.wrap(buffer, 0, position);
+    while (bytes.hasRemaining())
+      channel.write(bytes);
+    position = 0;
+  }
+
+  private void put(byte[] bytes) throws IOException {
+
+    for (int i = 0; i < bytes.length; i += BUFFER_SIZE) {
+      var length = Math.min(BUFFER_SIZE, bytes.length - i);
+      ensure(length);
+      System.arraycopy(bytes, i, buffer, position, length);
+      position += length;
+    }
+  }
+
+  private void ensure(int bytes) throws IOException {
+
+    if (BUFFER_SIZE - position < bytes)
+      flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+
+    try (channel) {
+      flush();
+    }
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2022 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.nsphere.trace;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Allocation-free ASCII formatting of numbers into a byte array, matching
+ * {@code String.format("%.Nf")} except for half-way cases in the last digit.
+ * Both methods return the position after the last byte written; the caller
+ * must leave room for {@link #LONG_LENGTH} or {@link #maxLength} bytes.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+public class DoubleFormat {
+
+  private static final long[] POW10 = {
+    1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L
+  };
+  // beyond this the scaled value is no longer an exact integer
+  private static final double FAST_LIMIT = 1e15;
+  // integer digits of Double.MAX_VALUE
+  private static final int MAX_DIGITS = 309;
+
+  // sign and 19 digits
+  public static final int LONG_LENGTH = 20;
+
+  private DoubleFormat() {
+  }
+
+  /**
+   * Longest {@link #appendFixed} output with the given decimals: sign,
+   * integer digits of the largest double, point and decimals.
+   */
+  public static int maxLength(int decimals) {
+
+    return 1 + MAX_DIGITS + 1 + decimals;
+  }
+
+  public static int appendFixed(byte[] buffer, int position, double value, int decimals) {
+
+    var abs = Math.abs(value);
+    if (decimals >= POW10.length || !(abs * POW10[decimals] < FAST_LIMIT))
+      return appendString(buffer, position,
+              String.format(Locale.ROOT, "%." + decimals + "f", value));
+    var pow = POW10[decimals];
+    var scaled = Math.round(abs * pow);
+    // the sign bit, so -0.0 prints as -0 like String.format
+    if (Double.doubleToRawLongBits(value) < 0)
+      buffer[position++] = '-';
+    position = appendLong(buffer, position, scaled / pow);
+    if (decimals > 0) {
+      buffer[position++] = '.';
+      var fraction = scaled % pow;
+      for (int i = position + decimals - 1; i >= position; i--) {
+        buffer[i] = (byte) ('0' + fraction % 10);
+        fraction /= 10;
+      }
+      position += decimals;
+    }
+    return position;
+  }
+
+  public static int appendLong(byte[] buffer, int position, long value) {
+
+    if (value < 0) {
+      if (value == Long.MIN_VALUE)
+        return appendString(buffer, position, Long.toString(value));
+      buffer[position++] = '-';
+      value = -value;
+    }
+    var digits = 1;
+    for (var v = value; v >= 10; v /= 10)
+      digits++;
+    for (int i = position + digits - 1; i >= position; i--) {
+      buffer[i] = (byte) ('0' + value % 10);
+      value /= 10;
+    }
+    return position + digits;
+  }
+
+  private static int appendString(byte[] buffer, int position, String s) {
+
+    var bytes = s.getBytes(StandardCharsets.US_ASCII);
+    System.arraycopy(bytes, 0, buffer, position, bytes.length);
+    return position + bytes.length;
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2022 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.nsphere.trace;
+
+import art.cctcc.nsphere.enums.TraceLevel;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Decides which iterations of a run are written to its trace. A policy
+ * keeps state, so every run needs its own instance.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+public class TracePolicy {
+
+  public final TraceLevel level;
+  public final int k;
+
+  private final double factor;
+  private double next;
+  private double best = Double.POSITIVE_INFINITY;
+
+  public TracePolicy(TraceLevel level, int k) {
+
+    this.level = level;
+    this.k = Math.max(1, k);
+    this.factor = Math.pow(10, 1.0 / this.k);
+  }
+
+  public static TracePolicy full() {
+
+    return new TracePolicy(TraceLevel.Full, 1);
+  }
+
+  /**
+   * Whether rows carry the parent and offspring evaluations.
+   */
+  public boolean members() {
+
+    return level != TraceLevel.Summary;
+  }
+
+  public boolean sample(int iteration, double best_eval) {
+
+    return switch (level) {
+      case Full, Summary ->
+        true;
+      case Every ->
+        iteration % k == 0;
+      case Log -> {
+        if (iteration < next)
+          yield false;
+        next = Math.max(iteration + 1, iteration * factor);
+        yield true;
+      }
+      case Improvement -> {
+        if (best_eval >= best)
+          yield false;
+        best = best_eval;
+        yield true;
+      }
+    };
+  }
+
+  public void save(DataOutput out) throws IOException {
+
+    out.writeDouble(next);
+    out.writeDouble(best);
+  }
+
+  public void restore(DataInput in) throws IOException {
+
+    next = in.readDouble();
+    best = in.readDouble();
+  }
+
+  @Override
+  public String toString() {
+
+    return switch (level) {
+      case Every, Log ->
+        level + "(k=" + k + ")";
+      default ->
+        level.toString();
+    };
+  }
+}
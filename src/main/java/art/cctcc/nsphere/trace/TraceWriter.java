@@ -0,0 +1,67 @@
+/*
+ * Copyright 2022 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.nsphere.trace;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Per-iteration output of an experiment: iteration, average parent
+ * evaluation, then the evaluations of all parents and offspring.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+public interface TraceWriter extends Closeable {
+
+  void write(int iteration, double average, double[] parents, double[] offspring)
+          throws IOException;
+
+  /**
+   * Rows written from now on belong to restart r, recorded in the Restart
+   * column of writers created with one.
+   */
+  default void restart(int r) {
+  }
+
+  /**
+   * Writes out the buffered rows and returns the length of the trace, at
+   * which a run resumed from a checkpoint goes on writing.
+   */
+  long checkpoint() throws IOException;
+
+  /**
+   * A writer that drops every row.
+   */
+  static TraceWriter discard() {
+
+    return new TraceWriter() {
+
+      @Override
+      public void write(int iteration, double average, double[] parents, double[] offspring) {
+      }
+
+      @Override
+      public long checkpoint() {
+
+        return 0;
+      }
+
+      @Override
+      public void close() {
+      }
+    };
+  }
+}
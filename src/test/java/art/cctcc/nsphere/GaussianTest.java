@@ -0,0 +1,78 @@
+/*
+ * Copyright 2022 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.nsphere;
+
+import art.cctcc.nsphere.enums.RNG;
+import org.apache.commons.math3.distribution.NormalDistribution;
+import org.apache.commons.math3.stat.descriptive.moment.Kurtosis;
+import org.apache.commons.math3.stat.descriptive.moment.Mean;
+import org.apache.commons.math3.stat.descriptive.moment.Skewness;
+import org.apache.commons.math3.stat.descriptive.moment.Variance;
+import org.apache.commons.math3.stat.inference.KolmogorovSmirnovTest;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * Statistical checks of the normal generators with fixed seeds: sample
+ * moments against their standard errors, a one-sample KS test against
+ * N(0,1) and a two-sample KS test against the Mersenne Twister polar method.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+class GaussianTest {
+
+  private static final int SAMPLES = 200000;
+  private static final long SEED = 1;
+  // two-sided, about 1 in 10^6 false alarms per statistic
+  private static final double Z_LIMIT = 5;
+  private static final double P_LIMIT = 1e-4;
+
+  @ParameterizedTest
+  @EnumSource(value = RNG.class, names = {"Xoshiro256PlusPlus", "L64X128MixRandom", "MersenneTwister", "Ziggurat"})
+  void momentsAreStandardNormal(RNG rng) {
+
+    var x = draw(rng, SEED + 1);
+    assertBelow("mean", new Mean().evaluate(x) * Math.sqrt(SAMPLES));
+    assertBelow("variance", (new Variance().evaluate(x) - 1) / Math.sqrt(2.0 / SAMPLES));
+    assertBelow("skewness", new Skewness().evaluate(x) / Math.sqrt(6.0 / SAMPLES));
+    assertBelow("kurtosis", new Kurtosis().evaluate(x) / Math.sqrt(24.0 / SAMPLES));
+  }
+
+  @ParameterizedTest
+  @EnumSource(value = RNG.class, names = {"Xoshiro256PlusPlus", "L64X128MixRandom", "MersenneTwister", "Ziggurat"})
+  void distributionIsStandardNormal(RNG rng) {
+
+    var x = draw(rng, SEED + 1);
+    var ks = new KolmogorovSmirnovTest();
+    var p = ks.kolmogorovSmirnovTest(new NormalDistribution(null, 0, 1), x);
+    assertTrue(p > P_LIMIT, () -> "KS p = " + p);
+    var p2 = ks.kolmogorovSmirnovTest(x, draw(RNG.MT, SEED));
+    assertTrue(p2 > P_LIMIT, () -> "two-sample KS p = " + p2);
+  }
+
+  private static void assertBelow(String statistic, double z) {
+
+    assertTrue(Math.abs(z) < Z_LIMIT, () -> statistic + " z = " + z);
+  }
+
+  private static double[] draw(RNG rng, long seed) {
+
+    var x = new double[SAMPLES];
+    RandomNumberGenerator.of(seed, rng).gaussians(x, 0, SAMPLES);
+    return x;
+  }
+}
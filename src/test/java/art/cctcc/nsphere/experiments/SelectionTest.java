@@ -0,0 +1,68 @@
+/*
+ * Copyright 2022 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.nsphere.experiments;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+class SelectionTest {
+
+  // keys drawn from a few values, with NaN, infinities and both zeros
+  private static final double[] VALUES = {
+    Double.NaN, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, -0.0, 0.0, 1.0, 1.0, 2.5};
+
+  @Test
+  void selectsLikeAStableSort() {
+
+    var random = new SplittableRandom(1);
+    for (var size : new int[]{1, 2, 5, 16, 17, 40, 100, 1000})
+      for (int trial = 0; trial < 50; trial++) {
+        var selection = new Selection(size);
+        for (int i = 0; i < size; i++)
+          selection.keys[i] = random.nextInt(4) == 0
+                  ? VALUES[random.nextInt(VALUES.length)] : random.nextInt(10);
+        var k = 1 + random.nextInt(size);
+        var expected = stableSort(selection.keys);
+        var order = selection.select(k);
+        assertArrayEquals(Arrays.copyOf(expected, k), Arrays.copyOf(order, k),
+                () -> "size " + size + ", k " + k + ": " + Arrays.toString(selection.keys));
+      }
+  }
+
+  @Test
+  void sortsNaNLast() {
+
+    var selection = new Selection(4);
+    System.arraycopy(new double[]{Double.NaN, 3, Double.NaN, 1}, 0, selection.keys, 0, 4);
+    assertArrayEquals(new int[]{3, 1, 0, 2}, selection.select(4));
+  }
+
+  private static int[] stableSort(double[] keys) {
+
+    return IntStream.range(0, keys.length).boxed()
+            .sorted(Comparator.comparingDouble(i -> keys[i]))
+            .mapToInt(Integer::intValue)
+            .toArray();
+  }
+}
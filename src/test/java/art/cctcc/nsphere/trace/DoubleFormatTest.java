@@ -0,0 +1,82 @@
+/*
+ * Copyright 2022 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.nsphere.trace;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+class DoubleFormatTest {
+
+  private static final double[] VALUES = {
+    0, -0.0, 1, -1, 0.5, 123.456, -98765.4321, 1e14, 9.99999e14, 1e15, -1e15, 1e20, 1e300,
+    Double.MAX_VALUE, -Double.MAX_VALUE, Double.MIN_VALUE,
+    Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY};
+
+  @Test
+  void matchesStringFormat() {
+
+    for (var decimals : new int[]{0, 3, 5, 9})
+      for (var value : VALUES) {
+        var buffer = new byte[DoubleFormat.maxLength(decimals)];
+        var end = DoubleFormat.appendFixed(buffer, 0, value, decimals);
+        var expected = String.format(Locale.ROOT, "%." + decimals + "f", value);
+        assertEquals(expected, new String(buffer, 0, end, StandardCharsets.US_ASCII),
+                "value " + value + ", decimals " + decimals);
+      }
+  }
+
+  @Test
+  void longsFitTheirLength() {
+
+    for (var value : new long[]{0, 7, -7, Long.MAX_VALUE, Long.MIN_VALUE}) {
+      var buffer = new byte[DoubleFormat.LONG_LENGTH];
+      var end = DoubleFormat.appendLong(buffer, 0, value);
+      assertEquals(Long.toString(value), new String(buffer, 0, end, StandardCharsets.US_ASCII));
+    }
+  }
+
+  @Test
+  void csvTraceWritesHugeValues(@TempDir Path dir) throws Exception {
+
+    var path = dir.resolve("trace.csv");
+    var parents = new double[]{Double.MAX_VALUE, Double.NaN};
+    var offspring = new double[]{-Double.MAX_VALUE, Double.POSITIVE_INFINITY, 1e300};
+    // enough rows to wrap the 64 KiB buffer many times
+    var rows = 1000;
+    try (var trace = new CsvTraceWriter(path, 2, 3, 0)) {
+      for (int i = 0; i < rows; i++)
+        trace.write(i, -Double.MAX_VALUE, parents, offspring);
+    }
+    var lines = Files.readAllLines(path, StandardCharsets.US_ASCII);
+    assertEquals(rows + 1, lines.size());
+    assertEquals("Iteration,Average,X0,X1,Y0,Y1,Y2", lines.get(0));
+    var expected = String.format(Locale.ROOT, "%d,%.5f,%.3f,%.3f,%.3f,%.3f,%.3f",
+            rows - 1, -Double.MAX_VALUE, parents[0], parents[1],
+            offspring[0], offspring[1], offspring[2]);
+    assertEquals(expected, lines.get(rows));
+    assertTrue(lines.stream().skip(1).allMatch(line -> line.split(",").length == 7));
+  }
+}